@@ -0,0 +1,81 @@
+package bench;
+
+import engine.BitboardPosition;
+import engine.Evaluation;
+import engine.MoveGenerator;
+import engine.PawnHashTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Static evaluation, in evaluations per second: on a fixed position, and after each legal
+ * move, so the incremental material and piece-square updates in make/unmake are included.
+ * Compare with MoveGenBenchmark's perft3 on the same positions. The pawnHash variants
+ * look the pawn structure up in a warm PawnHashTable, as the search does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+    @Param({"start", "kiwipete", "italian", "rookEndgame", "queenEndgame"})
+    public String position;
+
+    private BitboardPosition board;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private int moveCount;
+    private final PawnHashTable pawnTable = new PawnHashTable();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = new BitboardPosition();
+        board.setFromFen(Positions.byName(position));
+        moveCount = MoveGenerator.generateLegal(board, moves, 0);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return Evaluation.evaluate(board);
+    }
+
+    /** One operation evaluates every child of the position. */
+    @Benchmark
+    public int evaluateChildren() {
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            board.makeMove(moves[i]);
+            sum += Evaluation.evaluate(board);
+            board.unmakeMove(moves[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int evaluatePawnHash() {
+        return Evaluation.evaluate(board, pawnTable);
+    }
+
+    @Benchmark
+    public int evaluateChildrenPawnHash() {
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            board.makeMove(moves[i]);
+            sum += Evaluation.evaluate(board, pawnTable);
+            board.unmakeMove(moves[i]);
+        }
+        return sum;
+    }
+}
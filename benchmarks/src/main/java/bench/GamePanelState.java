@@ -0,0 +1,70 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import main.GamePanel;
+import piece.Piece;
+
+/**
+ * Gives the benchmarks access to GamePanel's private rule methods without
+ * widening their visibility in the game itself.
+ */
+final class GamePanelState {
+    static final MethodHandle IS_LEGAL_MOVE;
+    static final MethodHandle IS_CHECKMATE;
+    static final MethodHandle COMPUTE_LEGAL_TARGETS;
+    static final VarHandle ACTIVE_PIECE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(GamePanel.class, MethodHandles.lookup());
+            IS_LEGAL_MOVE = lookup.findVirtual(GamePanel.class, "isLegalMove",
+                    MethodType.methodType(boolean.class, Piece.class, int.class, int.class));
+            IS_CHECKMATE = lookup.findVirtual(GamePanel.class, "isCheckmate", MethodType.methodType(boolean.class));
+            COMPUTE_LEGAL_TARGETS = lookup.findVirtual(GamePanel.class, "computeLegalTargets",
+                    MethodType.methodType(long.class, Piece.class));
+            ACTIVE_PIECE = lookup.findVarHandle(GamePanel.class, "activeP", Piece.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private GamePanelState() {
+    }
+
+    /**
+     * Creates a panel (headless) and loads the named benchmark position.
+     */
+    static GamePanel load(String positionName) {
+        System.setProperty("java.awt.headless", "true");
+        GamePanel panel = new GamePanel();
+        panel.loadFen(Positions.byName(positionName));
+        return panel;
+    }
+
+    /**
+     * The piece of the side to move with the most squares to probe, used as the selected piece.
+     */
+    static Piece busiestPiece(GamePanel panel, int color) throws Throwable {
+        Piece best = null;
+        int bestCount = -1;
+        for (Piece p : GamePanel.getSimPieces()) {
+            if (p.getColor() != color) {
+                continue;
+            }
+            int count = 0;
+            for (int sq = 0; sq < 64; sq++) {
+                if ((boolean) IS_LEGAL_MOVE.invokeExact(panel, p, sq & 7, sq >> 3)) {
+                    count++;
+                }
+            }
+            if (count > bestCount) {
+                best = p;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import engine.BitboardPosition;
+import engine.MoveGenerator;
+import engine.Perft;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Engine move generation: one legal move list, and a shallow perft.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenBenchmark {
+    @Param({"start", "kiwipete", "italian", "rookEndgame", "queenEndgame"})
+    public String position;
+
+    private BitboardPosition board;
+    private Perft perft;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = new BitboardPosition();
+        board.setFromFen(Positions.byName(position));
+        perft = new Perft(board, Perft.MODE_LEGAL);
+    }
+
+    @Benchmark
+    public int generateLegal() {
+        return MoveGenerator.generateLegal(board, moves, 0);
+    }
+
+    @Benchmark
+    public long perft3() {
+        return perft.perft(3);
+    }
+}
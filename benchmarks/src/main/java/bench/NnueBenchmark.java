@@ -0,0 +1,96 @@
+package bench;
+
+import engine.BitboardPosition;
+import engine.Evaluation;
+import engine.MoveGenerator;
+import engine.NnueAccumulator;
+import engine.NnueNetwork;
+import engine.PawnHashTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Network evaluation against the hand-written one, in evaluations per second: on a fixed
+ * position, and after each legal move, which includes the accumulator updates of
+ * make/unmake. Uses the bootstrap network; speed does not depend on the weights except
+ * through how many L1 inputs are zero. The kernels param picks the scalar or the Vector
+ * API kernels (the fork adds the incubator module).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NnueBenchmark {
+    @Param({"start", "kiwipete", "rookEndgame"})
+    public String position;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    private BitboardPosition board;
+    private BitboardPosition networkBoard;
+    private NnueAccumulator accumulator;
+    private final PawnHashTable pawnTable = new PawnHashTable();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private int moveCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (kernels.equals("vector") && !NnueAccumulator.isVectorAvailable()) {
+            throw new IllegalStateException("Vector API not available in this JVM");
+        }
+        board = new BitboardPosition();
+        board.setFromFen(Positions.byName(position));
+        networkBoard = new BitboardPosition(board);
+        accumulator = new NnueAccumulator(NnueNetwork.bootstrap(), kernels.equals("vector"));
+        networkBoard.setAccumulator(accumulator);
+        moveCount = MoveGenerator.generateLegal(board, moves, 0);
+    }
+
+    @Benchmark
+    public int pstEvaluate() {
+        return Evaluation.evaluate(board, pawnTable);
+    }
+
+    @Benchmark
+    public int nnueEvaluate() {
+        return accumulator.evaluate(networkBoard.getSideToMove());
+    }
+
+    /** One operation evaluates every child of the position. */
+    @Benchmark
+    public int pstChildren() {
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            board.makeMove(moves[i]);
+            sum += Evaluation.evaluate(board, pawnTable);
+            board.unmakeMove(moves[i]);
+        }
+        return sum;
+    }
+
+    /** One operation evaluates every child of the position. */
+    @Benchmark
+    public int nnueChildren() {
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            networkBoard.makeMove(moves[i]);
+            sum += accumulator.evaluate(networkBoard.getSideToMove());
+            networkBoard.unmakeMove(moves[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,35 @@
+package bench;
+
+/**
+ * Fixed benchmark positions so results stay comparable between runs.
+ */
+public final class Positions {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // Middlegames
+    public static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    public static final String ITALIAN = "r1bq1rk1/pppp1ppp/2n2n2/2b1p3/2B1P3/2NP1N2/PPP2PPP/R1BQ1RK1 w - - 4 6";
+    public static final String SYMMETRIC = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+    // Endgames
+    public static final String ROOK_ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    public static final String PAWN_ENDGAME = "8/5pk1/6p1/8/3K4/8/5PPP/8 w - - 0 40";
+    public static final String QUEEN_ENDGAME = "6k1/5p2/6p1/8/3Q4/8/5PPK/q7 b - - 0 50";
+
+    private Positions() {
+    }
+
+    /**
+     * Looks up a position by the name used in @Param values.
+     */
+    public static String byName(String name) {
+        switch (name) {
+            case "start": return START;
+            case "kiwipete": return KIWIPETE;
+            case "italian": return ITALIAN;
+            case "symmetric": return SYMMETRIC;
+            case "rookEndgame": return ROOK_ENDGAME;
+            case "pawnEndgame": return PAWN_ENDGAME;
+            case "queenEndgame": return QUEEN_ENDGAME;
+            default: throw new IllegalArgumentException("Unknown benchmark position: " + name);
+        }
+    }
+}
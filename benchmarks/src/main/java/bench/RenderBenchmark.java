@@ -0,0 +1,69 @@
+package bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import main.Board;
+import main.GamePanel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One frame of rendering into an offscreen image, with a piece selected so the
+ * legal-move highlighting is part of the frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"kiwipete", "rookEndgame"})
+    public String position;
+
+    private GamePanel panel;
+    private Board board;
+    private BufferedImage image;
+    private Graphics2D g2;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        panel = GamePanelState.load(position);
+        panel.setSize(1100, 800);
+        int color = GamePanel.getPosition().getSideToMove();
+        GamePanelState.ACTIVE_PIECE.set(panel, GamePanelState.busiestPiece(panel, color));
+
+        board = new Board();
+        image = new BufferedImage(1100, 800, BufferedImage.TYPE_INT_ARGB);
+        g2 = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage boardDraw() {
+        board.draw(g2);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        panel.paintComponent(g2);
+        return image;
+    }
+}
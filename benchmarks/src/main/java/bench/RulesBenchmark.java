@@ -0,0 +1,112 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import main.GamePanel;
+import main.GameState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import piece.Knight;
+import piece.Piece;
+
+/**
+ * The GUI's rule checks: legality probing, check and checkmate detection and path tests.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+    @Param({"kiwipete", "italian", "symmetric", "rookEndgame", "pawnEndgame", "queenEndgame"})
+    public String position;
+
+    private GamePanel panel;
+    private ArrayList<Piece> pieces;
+    private Piece[] sideToMove;
+    private int color;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        panel = GamePanelState.load(position);
+        pieces = GamePanel.getSimPieces();
+        color = GamePanel.getPosition().getSideToMove();
+        sideToMove = pieces.stream().filter(p -> p.getColor() == color).toArray(Piece[]::new);
+    }
+
+    /**
+     * Probes every square for every piece of the side to move, as painting a selection does.
+     */
+    @Benchmark
+    public int isLegalMoveAllSquares() throws Throwable {
+        int legal = 0;
+        for (Piece p : sideToMove) {
+            for (int sq = 0; sq < 64; sq++) {
+                if ((boolean) GamePanelState.IS_LEGAL_MOVE.invokeExact(panel, p, sq & 7, sq >> 3)) {
+                    legal++;
+                }
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Building the legal-target masks from scratch, what a new selection or a new position costs.
+     */
+    @Benchmark
+    public long computeLegalTargets() throws Throwable {
+        long all = 0;
+        for (Piece p : sideToMove) {
+            all |= (long) GamePanelState.COMPUTE_LEGAL_TARGETS.invokeExact(panel, p);
+        }
+        return all;
+    }
+
+    /**
+     * Check detection from the piece list alone, occupancy built per call.
+     */
+    @Benchmark
+    public boolean isKingInCheck() {
+        return GameState.isKingInCheck(pieces, color);
+    }
+
+    /**
+     * Check detection on the game's board, which keeps its king squares and occupancy.
+     */
+    @Benchmark
+    public boolean isKingInCheckBoard() {
+        return GameState.isKingInCheck(GamePanel.getPosition(), color);
+    }
+
+    @Benchmark
+    public boolean isCheckmate() throws Throwable {
+        return (boolean) GamePanelState.IS_CHECKMATE.invokeExact(panel);
+    }
+
+    /**
+     * Path test from every sliding or stepping piece to every square.
+     */
+    @Benchmark
+    public void checkPath(Blackhole bh) {
+        for (Piece p : pieces) {
+            if (p instanceof Knight) {
+                continue;
+            }
+            for (int sq = 0; sq < 64; sq++) {
+                bh.consume(p.checkPath(sq & 7, sq >> 3));
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import engine.BitboardPosition;
+import engine.Engine;
+import engine.SearchLimits;
+import engine.SearchResult;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to reach a fixed search depth, with the searched nodes reported alongside so
+ * nodes per second can be read off the same run. Every invocation searches with a fresh
+ * engine, so no table entries or move ordering history carry over from the previous one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"start", "kiwipete", "italian", "rookEndgame"})
+    public String position;
+
+    @Param({"6"})
+    public int depth;
+
+    private BitboardPosition root;
+    private Engine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        root = new BitboardPosition();
+        root.setFromFen(Positions.byName(position));
+    }
+
+    @Setup(Level.Invocation)
+    public void newEngine() {
+        engine = new Engine();
+    }
+
+    /**
+     * Nodes searched, summed over the measured invocations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long nodes;
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth(Counters counters) {
+        SearchResult result = engine.think(root, SearchLimits.depth(depth));
+        counters.nodes += engine.getNodes();
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import engine.BitboardPosition;
+import engine.Engine;
+import engine.SearchLimits;
+import engine.SearchResult;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lazy SMP time-to-depth per thread count. The speedup for n threads is the
+ * threads=1 score divided by the threads=n score; pass -p threads=1,8,32,64 to
+ * match the machine. The table is cleared before each search so every invocation
+ * starts cold, as a new game position would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SmpBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"kiwipete", "italian"})
+    public String position;
+
+    @Param({"9"})
+    public int depth;
+
+    @Param({"64"})
+    public int hashMegabytes;
+
+    private BitboardPosition root;
+    private Engine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        root = new BitboardPosition();
+        root.setFromFen(Positions.byName(position));
+        engine = new Engine(hashMegabytes, threads);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        engine.getTable().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth() {
+        return engine.think(root, SearchLimits.depth(depth));
+    }
+}
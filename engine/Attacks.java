@@ -0,0 +1,247 @@
+package engine;
+
+import static engine.BitboardPosition.BLACK;
+import static engine.BitboardPosition.WHITE;
+
+/**
+ * Precomputed attack tables.
+ * Knight, king and pawn attacks are plain lookups by square; rook and bishop
+ * attacks use magic bitboards, so every "which squares does this piece attack"
+ * question is a constant-time table read.
+ * All tables are generated once when the class is loaded.
+ */
+public final class Attacks {
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    // Squares strictly between two aligned squares, and the full line through them
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    // Magic bitboard tables: one slice of a shared attack array per square
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] kingSteps = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+        for (int sq = 0; sq < 64; sq++) {
+            int col = BitboardPosition.colOf(sq);
+            int row = BitboardPosition.rowOf(sq);
+            KNIGHT[sq] = stepAttacks(col, row, knightSteps);
+            KING[sq] = stepAttacks(col, row, kingSteps);
+            // White pawns move towards row 0, black pawns towards row 7
+            PAWN[WHITE][sq] = stepAttacks(col, row, new int[][] {{-1, -1}, {1, -1}});
+            PAWN[BLACK][sq] = stepAttacks(col, row, new int[][] {{-1, 1}, {1, 1}});
+        }
+
+        ROOK_TABLE = initMagics(ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET, 0x5EEDL);
+        BISHOP_TABLE = initMagics(BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET, 0xB15L);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long bb = BitboardPosition.bit(b);
+                if ((rookAttacks(a, 0L) & bb) != 0) {
+                    BETWEEN[a][b] = rookAttacks(a, bb) & rookAttacks(b, BitboardPosition.bit(a));
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | BitboardPosition.bit(a) | bb;
+                } else if ((bishopAttacks(a, 0L) & bb) != 0) {
+                    BETWEEN[a][b] = bishopAttacks(a, bb) & bishopAttacks(b, BitboardPosition.bit(a));
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | BitboardPosition.bit(a) | bb;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knightAttacks(int square) { return KNIGHT[square]; }
+    public static long kingAttacks(int square) { return KING[square]; }
+
+    /**
+     * Squares attacked by a pawn of the given color standing on the square.
+     */
+    public static long pawnAttacks(int color, int square) { return PAWN[color][square]; }
+
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square]);
+        return ROOK_TABLE[ROOK_OFFSET[square] + index];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square]);
+        return BISHOP_TABLE[BISHOP_OFFSET[square] + index];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Attacks of any non-pawn piece type on the given occupancy.
+     */
+    public static long pieceAttacks(int type, int square, long occupied) {
+        switch (type) {
+            case BitboardPosition.KNIGHT: return KNIGHT[square];
+            case BitboardPosition.BISHOP: return bishopAttacks(square, occupied);
+            case BitboardPosition.ROOK: return rookAttacks(square, occupied);
+            case BitboardPosition.QUEEN: return queenAttacks(square, occupied);
+            case BitboardPosition.KING: return KING[square];
+            default: throw new IllegalArgumentException("Use pawnAttacks for pawns: " + type);
+        }
+    }
+
+    /**
+     * Squares strictly between a and b when they share a rank, file or diagonal; 0 otherwise.
+     */
+    public static long between(int a, int b) { return BETWEEN[a][b]; }
+
+    /**
+     * The whole rank, file or diagonal through a and b, or 0 if they are not aligned.
+     */
+    public static long line(int a, int b) { return LINE[a][b]; }
+
+    // ----- Table generation -----
+
+    private static long stepAttacks(int col, int row, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int c = col + step[0];
+            int r = row + step[1];
+            if (c >= 0 && c < 8 && r >= 0 && r < 8) {
+                attacks |= BitboardPosition.bit(BitboardPosition.square(c, r));
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks each ray until (and including) the first occupied square.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] d : directions) {
+            int c = BitboardPosition.colOf(square) + d[0];
+            int r = BitboardPosition.rowOf(square) + d[1];
+            while (c >= 0 && c < 8 && r >= 0 && r < 8) {
+                long b = BitboardPosition.bit(BitboardPosition.square(c, r));
+                attacks |= b;
+                if ((occupied & b) != 0) {
+                    break;
+                }
+                c += d[0];
+                r += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Relevant blocker squares: the rays without their final edge square.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] d : directions) {
+            int c = BitboardPosition.colOf(square) + d[0];
+            int r = BitboardPosition.rowOf(square) + d[1];
+            while (c + d[0] >= 0 && c + d[0] < 8 && r + d[1] >= 0 && r + d[1] < 8) {
+                mask |= BitboardPosition.bit(BitboardPosition.square(c, r));
+                c += d[0];
+                r += d[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Finds a magic multiplier for every square by trial with a fixed-seed generator,
+     * so the tables come out identical on every run, and fills the shared attack array.
+     */
+    private static long[] initMagics(int[][] directions, long[] masks, long[] magics,
+                                     int[] shifts, int[] offsets, long seed) {
+        int total = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            masks[sq] = relevantMask(sq, directions);
+            int bits = Long.bitCount(masks[sq]);
+            shifts[sq] = 64 - bits;
+            offsets[sq] = total;
+            total += 1 << bits;
+        }
+
+        long[] table = new long[total];
+        long[] occupancies = new long[4096];
+        long[] reference = new long[4096];
+        int[] epoch = new int[4096];
+        int attempt = 0;
+        long state = seed;
+
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = masks[sq];
+            int size = 1 << Long.bitCount(mask);
+
+            // Enumerate every subset of the mask (Carry-Rippler trick)
+            long subset = 0L;
+            for (int i = 0; i < size; i++) {
+                occupancies[i] = subset;
+                reference[i] = slidingAttacks(sq, subset, directions);
+                subset = (subset - mask) & mask;
+            }
+
+            while (true) {
+                // Sparse random numbers make good magic candidates
+                state = xorshift(state);
+                long a = state;
+                state = xorshift(state);
+                long b = state;
+                state = xorshift(state);
+                long magic = a & b & state;
+                if (Long.bitCount((mask * magic) >>> 56) < 6) {
+                    continue;
+                }
+
+                attempt++;
+                boolean ok = true;
+                for (int i = 0; i < size; i++) {
+                    int index = (int) ((occupancies[i] * magic) >>> shifts[sq]);
+                    int slot = offsets[sq] + index;
+                    if (epoch[index] < attempt) {
+                        epoch[index] = attempt;
+                        table[slot] = reference[i];
+                    } else if (table[slot] != reference[i]) {
+                        ok = false;
+                        break;
+                    }
+                }
+                if (ok) {
+                    magics[sq] = magic;
+                    break;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static long xorshift(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+}
@@ -0,0 +1,589 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.List;
+import piece.Bishop;
+import piece.King;
+import piece.Knight;
+import piece.Pawn;
+import piece.Piece;
+import piece.Queen;
+import piece.Rook;
+
+/**
+ * Bitboard representation of a chess position.
+ * Squares are numbered row * 8 + col using the same coordinates as the
+ * GUI: col 0 is the a-file and row 0 is Black's back rank (rank 8), so
+ * square 0 is a8 and square 63 is h1.
+ */
+public class BitboardPosition {
+    // Colors (same values as GamePanel.getWhite()/getBlack())
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Piece types
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    // Castling rights bits
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    // Rights that survive a move touching each square (rook and king home squares clear bits)
+    private static final int[] CASTLING_MASK = new int[64];
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[square(0, 0)] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[square(7, 0)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[square(4, 0)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[square(0, 7)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[square(7, 7)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[square(4, 7)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+    }
+
+    private final long[] colorBB = new long[2];
+    private final long[] typeBB = new long[6];
+    private long occupied;
+    private final int[] mailbox = new int[64]; // piece code per square, NO_PIECE when empty
+    private final int[] kingSquare = {NO_SQUARE, NO_SQUARE};
+
+    private int sideToMove = WHITE;
+    private int castlingRights;
+    private int epSquare = NO_SQUARE;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private long key; // Zobrist key, updated incrementally
+    private long pawnKey; // Zobrist key of the pawns alone, for the pawn structure cache
+    // Material and piece-square sums (White minus Black) and game phase, updated incrementally
+    private int psqMidgame;
+    private int psqEndgame;
+    private int phase;
+    // Network accumulator kept in step with the pieces, or null when no network evaluates this board
+    private NnueAccumulator accumulator;
+
+    // Undo stack for makeMove/unmakeMove. Each entry packs the state a move cannot restore by itself:
+    // bits 0-3 captured piece code + 1, bits 4-7 castling rights, bits 8-14 en-passant square + 1,
+    // bit 15 side to move, bits 16-31 halfmove clock
+    private int[] undoStack = new int[1024];
+    // Zobrist key before each move; doubles as the history for repetition detection
+    private long[] keyStack = new long[1024];
+    private int undoCount;
+
+    public BitboardPosition() {
+        Arrays.fill(mailbox, NO_PIECE);
+    }
+
+    /**
+     * Copy constructor, used to give each search or perft thread its own board.
+     */
+    public BitboardPosition(BitboardPosition other) {
+        copyFrom(other);
+    }
+
+    public void copyFrom(BitboardPosition other) {
+        System.arraycopy(other.colorBB, 0, colorBB, 0, 2);
+        System.arraycopy(other.typeBB, 0, typeBB, 0, 6);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        System.arraycopy(other.kingSquare, 0, kingSquare, 0, 2);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        psqMidgame = other.psqMidgame;
+        psqEndgame = other.psqEndgame;
+        phase = other.phase;
+        if (undoStack.length < other.undoStack.length) {
+            undoStack = new int[other.undoStack.length];
+            keyStack = new long[other.keyStack.length];
+        }
+        System.arraycopy(other.undoStack, 0, undoStack, 0, other.undoCount);
+        System.arraycopy(other.keyStack, 0, keyStack, 0, other.undoCount);
+        undoCount = other.undoCount;
+        if (accumulator != null) {
+            accumulator.refresh(this);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(colorBB, 0L);
+        Arrays.fill(typeBB, 0L);
+        Arrays.fill(mailbox, NO_PIECE);
+        kingSquare[WHITE] = NO_SQUARE;
+        kingSquare[BLACK] = NO_SQUARE;
+        occupied = 0L;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0L;
+        pawnKey = 0L;
+        psqMidgame = 0;
+        psqEndgame = 0;
+        phase = 0;
+        undoCount = 0;
+        if (accumulator != null) {
+            accumulator.reset();
+        }
+    }
+
+    /**
+     * Rebuilds the position from the GUI's piece list.
+     * Castling rights are derived from the kings' and rooks' hasMoved flags.
+     */
+    public void setFromPieces(List<? extends Piece> pieces, int sideToMove) {
+        clear();
+        for (Piece p : pieces) {
+            addPiece(p.getColor(), typeOf(p), square(p.getCol(), p.getRow()));
+        }
+        setSideToMove(sideToMove);
+
+        for (Piece p : pieces) {
+            if (p instanceof Rook && !((Rook) p).hasMoved()) {
+                int homeRow = p.getColor() == WHITE ? 7 : 0;
+                King king = findKing(pieces, p.getColor());
+                if (p.getRow() != homeRow || king == null || king.hasMoved()
+                        || king.getRow() != homeRow || king.getCol() != 4) {
+                    continue;
+                }
+                if (p.getCol() == 7) {
+                    castlingRights |= p.getColor() == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+                } else if (p.getCol() == 0) {
+                    castlingRights |= p.getColor() == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+                }
+            }
+        }
+        key = Zobrist.compute(this);
+    }
+
+    private static King findKing(List<? extends Piece> pieces, int color) {
+        for (Piece p : pieces) {
+            if (p instanceof King && p.getColor() == color) {
+                return (King) p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the position from a FEN string. The move counters are optional.
+     *
+     * @throws IllegalArgumentException if the FEN cannot be parsed
+     */
+    public void setFromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least 4 fields: " + fen);
+        }
+        clear();
+
+        int row = 0;
+        int col = 0;
+        for (char ch : fields[0].toCharArray()) {
+            if (ch == '/') {
+                row++;
+                col = 0;
+            } else if (ch >= '1' && ch <= '8') {
+                col += ch - '0';
+            } else {
+                int type = "pnbrqk".indexOf(Character.toLowerCase(ch));
+                if (type < 0 || col > 7 || row > 7) {
+                    throw new IllegalArgumentException("Bad piece placement in FEN: " + fields[0]);
+                }
+                addPiece(Character.isUpperCase(ch) ? WHITE : BLACK, type, square(col, row));
+                col++;
+            }
+        }
+
+        setSideToMove(fields[1].equals("b") ? BLACK : WHITE);
+
+        int rights = 0;
+        for (char ch : fields[2].toCharArray()) {
+            switch (ch) {
+                case 'K': rights |= WHITE_KINGSIDE; break;
+                case 'Q': rights |= WHITE_QUEENSIDE; break;
+                case 'k': rights |= BLACK_KINGSIDE; break;
+                case 'q': rights |= BLACK_QUEENSIDE; break;
+                default: break;
+            }
+        }
+        setCastlingRights(rights);
+
+        if (!fields[3].equals("-")) {
+            setEpSquare(square(fields[3].charAt(0) - 'a', '8' - fields[3].charAt(1)));
+        }
+        if (fields.length > 5) {
+            halfmoveClock = Integer.parseInt(fields[4]);
+            fullmoveNumber = Integer.parseInt(fields[5]);
+        }
+    }
+
+    public String toFen() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int code = mailbox[square(col, row)];
+                if (code == NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char ch = "pnbrqk".charAt(typeOfCode(code));
+                sb.append(colorOfCode(code) == WHITE ? Character.toUpperCase(ch) : ch);
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row < 7) {
+                sb.append('/');
+            }
+        }
+        sb.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            sb.append('-');
+        }
+        if ((castlingRights & WHITE_KINGSIDE) != 0) sb.append('K');
+        if ((castlingRights & WHITE_QUEENSIDE) != 0) sb.append('Q');
+        if ((castlingRights & BLACK_KINGSIDE) != 0) sb.append('k');
+        if ((castlingRights & BLACK_QUEENSIDE) != 0) sb.append('q');
+        sb.append(' ').append(epSquare == NO_SQUARE ? "-" : Move.squareName(epSquare));
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return sb.toString();
+    }
+
+    /**
+     * Maps a GUI piece object to its bitboard piece type.
+     */
+    public static int typeOf(Piece p) {
+        if (p instanceof Pawn) return PAWN;
+        if (p instanceof Knight) return KNIGHT;
+        if (p instanceof Bishop) return BISHOP;
+        if (p instanceof Rook) return ROOK;
+        if (p instanceof Queen) return QUEEN;
+        if (p instanceof King) return KING;
+        throw new IllegalArgumentException("Unknown piece type: " + p.getClass().getSimpleName());
+    }
+
+    // ----- Square and piece-code helpers -----
+
+    public static int square(int col, int row) { return (row << 3) | col; }
+    public static int colOf(int square) { return square & 7; }
+    public static int rowOf(int square) { return square >>> 3; }
+    public static long bit(int square) { return 1L << square; }
+
+    public static int pieceCode(int color, int type) { return (type << 1) | color; }
+    public static int typeOfCode(int code) { return code >> 1; }
+    public static int colorOfCode(int code) { return code & 1; }
+
+    // ----- Piece placement -----
+
+    public void addPiece(int color, int type, int square) {
+        long b = bit(square);
+        colorBB[color] |= b;
+        typeBB[type] |= b;
+        occupied |= b;
+        int code = pieceCode(color, type);
+        mailbox[square] = code;
+        key ^= Zobrist.piece(code, square);
+        if (type == PAWN) {
+            pawnKey ^= Zobrist.piece(code, square);
+        }
+        psqMidgame += PieceSquareTables.midgame(code, square);
+        psqEndgame += PieceSquareTables.endgame(code, square);
+        phase += PieceSquareTables.phase(code);
+        if (accumulator != null) {
+            accumulator.add(code, square);
+        }
+        if (type == KING) {
+            kingSquare[color] = square;
+        }
+    }
+
+    /**
+     * Removes whatever piece stands on the square and returns its code, or NO_PIECE.
+     */
+    public int removePiece(int square) {
+        int code = mailbox[square];
+        if (code == NO_PIECE) {
+            return NO_PIECE;
+        }
+        long b = bit(square);
+        colorBB[colorOfCode(code)] &= ~b;
+        typeBB[typeOfCode(code)] &= ~b;
+        occupied &= ~b;
+        mailbox[square] = NO_PIECE;
+        key ^= Zobrist.piece(code, square);
+        if (typeOfCode(code) == PAWN) {
+            pawnKey ^= Zobrist.piece(code, square);
+        }
+        psqMidgame -= PieceSquareTables.midgame(code, square);
+        psqEndgame -= PieceSquareTables.endgame(code, square);
+        phase -= PieceSquareTables.phase(code);
+        if (accumulator != null) {
+            accumulator.remove(code, square);
+        }
+        if (typeOfCode(code) == KING && kingSquare[colorOfCode(code)] == square) {
+            kingSquare[colorOfCode(code)] = NO_SQUARE;
+        }
+        return code;
+    }
+
+    /**
+     * Moves a piece to an empty square. Captures must be removed first.
+     */
+    public void movePiece(int from, int to) {
+        int code = mailbox[from];
+        long fromTo = bit(from) | bit(to);
+        colorBB[colorOfCode(code)] ^= fromTo;
+        typeBB[typeOfCode(code)] ^= fromTo;
+        occupied ^= fromTo;
+        mailbox[from] = NO_PIECE;
+        mailbox[to] = code;
+        key ^= Zobrist.piece(code, from) ^ Zobrist.piece(code, to);
+        if (typeOfCode(code) == PAWN) {
+            pawnKey ^= Zobrist.piece(code, from) ^ Zobrist.piece(code, to);
+        }
+        psqMidgame += PieceSquareTables.midgame(code, to) - PieceSquareTables.midgame(code, from);
+        psqEndgame += PieceSquareTables.endgame(code, to) - PieceSquareTables.endgame(code, from);
+        if (accumulator != null) {
+            accumulator.move(code, from, to);
+        }
+        if (typeOfCode(code) == KING) {
+            kingSquare[colorOfCode(code)] = to;
+        }
+    }
+
+    // ----- Make / unmake -----
+
+    /**
+     * Plays a packed move (see Move) in place. The state needed to take it back is
+     * pushed on a preallocated undo stack, so making and unmaking moves does not allocate.
+     * The moving side is taken from the piece on the from square.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int us = colorOfCode(mailbox[from]);
+        long keyBefore = key;
+
+        int captured = NO_PIECE;
+        if (flags == Move.EN_PASSANT) {
+            captured = removePiece(to + (us == WHITE ? 8 : -8));
+        } else if ((flags & Move.CAPTURE) != 0) {
+            captured = removePiece(to);
+        }
+
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+            keyStack = Arrays.copyOf(keyStack, undoCount * 2);
+        }
+        keyStack[undoCount] = keyBefore;
+        undoStack[undoCount++] = (captured + 1) | (castlingRights << 4) | ((epSquare + 1) << 8)
+                | (sideToMove << 15) | (halfmoveClock << 16);
+
+        boolean pawnMove = typeOfCode(mailbox[from]) == PAWN;
+        movePiece(from, to);
+
+        if ((flags & Move.PROMOTION) != 0) {
+            removePiece(to);
+            addPiece(us, Move.promotionType(move), to);
+        } else if (flags == Move.KING_CASTLE) {
+            movePiece(to + 1, to - 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to - 2, to + 1);
+        }
+
+        halfmoveClock = (pawnMove || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare);
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+
+        // Only record an en-passant square when an enemy pawn can actually capture there
+        epSquare = NO_SQUARE;
+        if (flags == Move.DOUBLE_PUSH) {
+            int ep = (from + to) >> 1;
+            if ((Attacks.pawnAttacks(us, ep) & pieces(1 - us, PAWN)) != 0) {
+                epSquare = ep;
+            }
+        }
+
+        if (us == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = 1 - us;
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare) ^ Zobrist.side();
+    }
+
+    /**
+     * Takes back the last move made with makeMove. The same move must be passed in.
+     */
+    public void unmakeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int undo = undoStack[--undoCount];
+        int us = colorOfCode(mailbox[to]);
+
+        if ((flags & Move.PROMOTION) != 0) {
+            removePiece(to);
+            addPiece(us, PAWN, to);
+        } else if (flags == Move.KING_CASTLE) {
+            movePiece(to - 1, to + 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to + 1, to - 2);
+        }
+        movePiece(to, from);
+
+        int captured = (undo & 0xF) - 1;
+        if (captured != NO_PIECE) {
+            int captureSquare = flags == Move.EN_PASSANT ? to + (us == WHITE ? 8 : -8) : to;
+            addPiece(colorOfCode(captured), typeOfCode(captured), captureSquare);
+        }
+
+        if (us == BLACK) {
+            fullmoveNumber--;
+        }
+        castlingRights = (undo >>> 4) & 0xF;
+        epSquare = ((undo >>> 8) & 0x7F) - 1;
+        sideToMove = (undo >>> 15) & 1;
+        halfmoveClock = undo >>> 16;
+        key = keyStack[undoCount];
+    }
+
+    /**
+     * True when the current position occurred before since the last capture or pawn move.
+     * Only positions with the same side to move are compared.
+     */
+    public boolean isRepetition() {
+        int limit = Math.max(0, undoCount - halfmoveClock);
+        for (int i = undoCount - 2; i >= limit; i -= 2) {
+            if (keyStack[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True when the king of the given color is attacked. A missing king is never in check.
+     */
+    public boolean isInCheck(int color) {
+        int king = kingSquare[color];
+        return king != NO_SQUARE && isSquareAttacked(king, 1 - color);
+    }
+
+    // ----- Queries -----
+
+    public int pieceAt(int square) { return mailbox[square]; }
+    public boolean isOccupied(int square) { return (occupied & bit(square)) != 0; }
+    public boolean isOccupied(int col, int row) { return isOccupied(square(col, row)); }
+
+    /**
+     * True when a piece of the given color stands on (col, row).
+     */
+    public boolean isColorAt(int color, int col, int row) {
+        return (colorBB[color] & bit(square(col, row))) != 0;
+    }
+
+    public long occupied() { return occupied; }
+    public long pieces(int color) { return colorBB[color]; }
+    public long piecesOfType(int type) { return typeBB[type]; }
+    public long pieces(int color, int type) { return colorBB[color] & typeBB[type]; }
+    public int kingSquare(int color) { return kingSquare[color]; }
+
+    /**
+     * All pieces of either color attacking the square, given the occupancy.
+     */
+    public long attackersTo(int square, long occupied) {
+        return (Attacks.pawnAttacks(BLACK, square) & pieces(WHITE, PAWN))
+                | (Attacks.pawnAttacks(WHITE, square) & pieces(BLACK, PAWN))
+                | (Attacks.knightAttacks(square) & typeBB[KNIGHT])
+                | (Attacks.kingAttacks(square) & typeBB[KING])
+                | (Attacks.bishopAttacks(square, occupied) & (typeBB[BISHOP] | typeBB[QUEEN]))
+                | (Attacks.rookAttacks(square, occupied) & (typeBB[ROOK] | typeBB[QUEEN]));
+    }
+
+    /**
+     * Probes outward from the square: the leaper masks first, then the slider rays, and only
+     * when an enemy slider is on one of the square's lines at all. Stops at the first attacker.
+     */
+    public boolean isSquareAttacked(int square, int byColor) {
+        long them = colorBB[byColor];
+        if ((Attacks.knightAttacks(square) & typeBB[KNIGHT] & them) != 0
+                || (Attacks.pawnAttacks(1 - byColor, square) & typeBB[PAWN] & them) != 0
+                || (Attacks.kingAttacks(square) & typeBB[KING] & them) != 0) {
+            return true;
+        }
+        long diagonal = (typeBB[BISHOP] | typeBB[QUEEN]) & them;
+        if (diagonal != 0 && (Attacks.bishopAttacks(square, occupied) & diagonal) != 0) {
+            return true;
+        }
+        long orthogonal = (typeBB[ROOK] | typeBB[QUEEN]) & them;
+        return orthogonal != 0 && (Attacks.rookAttacks(square, occupied) & orthogonal) != 0;
+    }
+
+    public long getKey() { return key; }
+    public long getPawnKey() { return pawnKey; }
+
+    /** Middlegame material plus piece-square score, White minus Black. */
+    public int getPsqMidgame() { return psqMidgame; }
+    /** Endgame material plus piece-square score, White minus Black. */
+    public int getPsqEndgame() { return psqEndgame; }
+    /** Game phase: PieceSquareTables.MAX_PHASE at the start, 0 with only pawns and kings left. */
+    public int getPhase() { return phase; }
+
+    public NnueAccumulator getAccumulator() { return accumulator; }
+
+    /**
+     * Attaches a network accumulator, which from then on follows every piece added, removed
+     * or moved, or detaches it with null. The accumulator is rebuilt from the current pieces.
+     */
+    public void setAccumulator(NnueAccumulator accumulator) {
+        this.accumulator = accumulator;
+        if (accumulator != null) {
+            accumulator.refresh(this);
+        }
+    }
+
+    public int getSideToMove() { return sideToMove; }
+    public void setSideToMove(int sideToMove) {
+        if (sideToMove != this.sideToMove) {
+            key ^= Zobrist.side();
+        }
+        this.sideToMove = sideToMove;
+    }
+    public int getCastlingRights() { return castlingRights; }
+    public void setCastlingRights(int castlingRights) {
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+    public int getEpSquare() { return epSquare; }
+    public void setEpSquare(int epSquare) {
+        key ^= Zobrist.enPassant(this.epSquare) ^ Zobrist.enPassant(epSquare);
+        this.epSquare = epSquare;
+    }
+    public int getHalfmoveClock() { return halfmoveClock; }
+    public void setHalfmoveClock(int halfmoveClock) { this.halfmoveClock = halfmoveClock; }
+    public int getFullmoveNumber() { return fullmoveNumber; }
+    public void setFullmoveNumber(int fullmoveNumber) { this.fullmoveNumber = fullmoveNumber; }
+}
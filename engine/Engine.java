@@ -0,0 +1,492 @@
+package engine;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computer player: picks a move for the side to move of a position within a time budget.
+ * The caller's position is copied, so it may keep being read (for example by the GUI)
+ * while the engine thinks.
+ *
+ * With more than one thread the engine runs Lazy SMP: helper threads search the same root
+ * on their own boards, sharing only the transposition table, and are stopped as soon as
+ * the main search returns. The main thread decides the move and the time use.
+ *
+ * Pondering: startPonder() searches on a background thread while the opponent thinks,
+ * either the position after the expected reply or, without one, the opponent's position
+ * itself, which spreads the time over all replies. The entries it leaves in the shared
+ * transposition table speed up the next think(); when the opponent played the expected
+ * reply and the ponder search already ran as long as the move's limits allow, think()
+ * returns its result at once.
+ *
+ * With --nnue the search evaluates with a network file (see NnueNetwork) instead of the
+ * hand-written evaluation; add --add-modules jdk.incubator.vector to the java command
+ * for the SIMD kernels. With --book it plays from a Polyglot opening book while the
+ * position is in it. With --tablebase it plays endings of the tablebase (see
+ * TablebaseGenerator) straight from it, and the search scores them exactly.
+ *
+ * Analysis: with --multipv k the search reports the k best moves with their lines at
+ * every depth, and book and tablebase moves are searched rather than played. A
+ * SearchListener set with setListener() receives these updates while think() runs.
+ *
+ * Usage: java engine.Engine [--hash mb] [--threads n] [--nnue file] [--book file.bin] [--tablebase file.tb]
+ *                           [--multipv k] [--movetime ms | --clock ms [--inc ms] | --depth n | --nodes n] [fen]
+ *
+ * Prints an info line per completed depth and line (score, nodes, nodes/s, time, principal
+ * variation), the best move, the time-to-depth table of the search and the
+ * transposition and pawn table statistics.
+ */
+public class Engine {
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    private final BitboardPosition position = new BitboardPosition();
+    private final TranspositionTable table;
+    private final Search search;
+    private final Search[] helpers;
+    private final ExecutorService helperPool; // null when single-threaded
+    private final Future<?>[] helperTasks;
+    private PolyglotBook book;
+    private final Random bookRandom = new Random();
+    private Tablebase tablebase;
+    private Thread ponderThread; // null when not pondering
+    private volatile SearchResult ponderResult;
+    private long ponderKey;
+
+    public Engine() {
+        this(DEFAULT_HASH_MEGABYTES);
+    }
+
+    public Engine(int hashMegabytes) {
+        this(hashMegabytes, 1);
+    }
+
+    public Engine(int hashMegabytes, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        table = new TranspositionTable(hashMegabytes);
+        search = new Search(position, table);
+        helpers = new Search[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(new BitboardPosition(), table, i + 1);
+        }
+        search.setHelpers(helpers);
+        helperTasks = new Future<?>[helpers.length];
+        helperPool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, r -> {
+            Thread thread = new Thread(r, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the position for its side to move. Blocks until the limits are reached or stop() is called.
+     * A running ponder search is stopped first.
+     */
+    public SearchResult think(BitboardPosition root, SearchLimits limits) {
+        // A ponder search has already started this move's table generation
+        boolean ponderedMove = isPondering();
+        stopPonder();
+        SearchResult pondered = ponderResult;
+        ponderResult = null;
+        if (pondered != null && ponderKey == root.getKey() && isEnough(pondered, limits)) {
+            return pondered;
+        }
+        search.clearStop();
+        return search(root, limits, !ponderedMove);
+    }
+
+    // Whether a ponder result already meets the limits of a move: its depth, or its think time
+    private static boolean isEnough(SearchResult result, SearchLimits limits) {
+        if (result.getDepth() == 0) {
+            return false;
+        }
+        if (limits.getDepth() > 0) {
+            return result.getDepth() >= limits.getDepth();
+        }
+        return limits.softTimeMillis() > 0 && result.getElapsedMillis() >= limits.softTimeMillis();
+    }
+
+    // think() without clearing a stop(), so that stopPonder() cannot be missed. The table
+    // ages once per move here, not in each thread's Search.run
+    private SearchResult search(BitboardPosition root, SearchLimits limits, boolean newGeneration) {
+        // Analysis wants the lines, not the book's or the tablebase's one move
+        boolean analysis = search.getMultiPv() > 1;
+        if (book != null && !analysis) {
+            int bookMove = book.pickMove(root, bookRandom);
+            if (bookMove != Move.NONE) {
+                return new SearchResult(0, 0, new int[] {bookMove}, 0, 0);
+            }
+        }
+        if (tablebase != null && !analysis) {
+            SearchResult known = tablebaseResult(root);
+            if (known != null) {
+                return known;
+            }
+        }
+        if (newGeneration) {
+            table.newSearch();
+        }
+        position.copyFrom(root);
+        // Helpers run until stopped; only a depth limit is passed on
+        SearchLimits helperLimits = limits.getDepth() > 0 ? SearchLimits.depth(limits.getDepth()) : SearchLimits.infinite();
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = helpers[i];
+            helper.getPosition().copyFrom(root);
+            helper.clearStop();
+            helperTasks[i] = helperPool.submit(() -> helper.run(helperLimits));
+        }
+
+        SearchResult result = search.run(limits);
+
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+        for (Future<?> task : helperTasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts searching on a background thread, with no limit, while the opponent is to
+     * move in the position: the position after expectedMove when that is one of its legal
+     * moves (usually the reply predicted by the last think()), otherwise the position
+     * itself. The position is copied before this returns. Stopped by stopPonder(), think()
+     * or a new startPonder().
+     */
+    public void startPonder(BitboardPosition position, int expectedMove) {
+        stopPonder();
+        BitboardPosition root = new BitboardPosition(position);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(root, moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == expectedMove) {
+                root.makeMove(expectedMove);
+                break;
+            }
+        }
+        ponderKey = root.getKey();
+        ponderResult = null;
+        search.clearStop();
+        ponderThread = new Thread(() -> ponderResult = search(root, SearchLimits.infinite(), true), "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    /**
+     * Stops a ponder search and waits for it to return; its result is kept for the next
+     * think(). Does nothing when not pondering.
+     */
+    public void stopPonder() {
+        if (ponderThread == null) {
+            return;
+        }
+        search.stop();
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+    }
+
+    public boolean isPondering() {
+        return ponderThread != null;
+    }
+
+    /**
+     * Plays from the opening book, when the position is in it, instead of searching; null
+     * turns the book off. A book move is returned as a depth 0 result.
+     */
+    public void setBook(PolyglotBook book) {
+        this.book = book;
+    }
+
+    public PolyglotBook getBook() {
+        return book;
+    }
+
+    /**
+     * Plays positions of the tablebase from it, and lets the search score them exactly;
+     * null turns it off. Must not be called while think() runs.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        search.setTablebase(tablebase);
+        for (Search helper : helpers) {
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * The tablebase's score and line for the root as a depth 0 result, or null when the
+     * root is not in it or has no legal move. The line is the fastest mate for the winner
+     * against the longest defence; a drawn root gets only its first move.
+     */
+    private SearchResult tablebaseResult(BitboardPosition root) {
+        long start = System.nanoTime();
+        int score = tablebase.probe(root);
+        if (score == Tablebase.UNKNOWN) {
+            return null;
+        }
+        BitboardPosition line = new BitboardPosition(root);
+        int[] pv = new int[Search.MAX_PLY];
+        int length = 0;
+        do {
+            int move = tablebase.bestMove(line);
+            if (move == Move.NONE) {
+                break;
+            }
+            pv[length++] = move;
+            line.makeMove(move);
+        } while (score != 0 && length < pv.length);
+        if (length == 0) {
+            return null;
+        }
+        return new SearchResult(0, score, Arrays.copyOf(pv, length), 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Searches and reports the given number of best moves, 1 for play; see
+     * Search.setMultiPv. Must not be called while think() runs.
+     */
+    public void setMultiPv(int multiPv) {
+        search.setMultiPv(multiPv);
+    }
+
+    public int getMultiPv() {
+        return search.getMultiPv();
+    }
+
+    /**
+     * Receives each completed iteration of the main search, pondering included, on the
+     * searching thread; null for none.
+     */
+    public void setListener(SearchListener listener) {
+        search.setListener(listener);
+    }
+
+    /**
+     * Evaluates with the network from now on, or with the hand-written evaluation again
+     * when null. Must not be called while think() runs.
+     */
+    public void setNetwork(NnueNetwork network) {
+        search.getPosition().setAccumulator(network == null ? null : new NnueAccumulator(network));
+        for (Search helper : helpers) {
+            helper.getPosition().setAccumulator(network == null ? null : new NnueAccumulator(network));
+        }
+    }
+
+    /**
+     * Makes a running think() return with its best move so far. Safe to call from any thread.
+     */
+    public void stop() {
+        search.stop();
+    }
+
+    /**
+     * Stops the helper threads for good. The engine must not be used afterwards.
+     */
+    public void shutdown() {
+        stopPonder();
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+        }
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /** The main search thread's pawn structure cache. */
+    public PawnHashTable getPawnTable() {
+        return search.getPawnTable();
+    }
+
+    public void setInfoStream(PrintStream info) {
+        search.setInfoStream(info);
+    }
+
+    /** Nodes searched by the last think() on all threads, including an unfinished last iteration. */
+    public long getNodes() {
+        return search.getTotalNodes();
+    }
+
+    public int getCompletedDepth() {
+        return search.getCompletedDepth();
+    }
+
+    public long getTimeToDepthNanos(int depth) {
+        return search.getTimeToDepthNanos(depth);
+    }
+
+    public long getNodesToDepth(int depth) {
+        return search.getNodesToDepth(depth);
+    }
+
+    /** Effective branching factor of the given iteration of the last think(), or -1. */
+    public double getBranchingFactor(int depth) {
+        return search.getBranchingFactor(depth);
+    }
+
+    public static void main(String[] args) {
+        SearchLimits limits = null;
+        long increment = 0;
+        long clock = -1;
+        int hashMegabytes = DEFAULT_HASH_MEGABYTES;
+        int threads = 1;
+        String network = null;
+        String bookFile = null;
+        String tablebaseFile = null;
+        int multiPv = 1;
+        StringBuilder fen = new StringBuilder();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--hash") && i + 1 < args.length) {
+                hashMegabytes = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--nnue") && i + 1 < args.length) {
+                network = args[++i];
+            } else if (arg.equals("--book") && i + 1 < args.length) {
+                bookFile = args[++i];
+            } else if (arg.equals("--tablebase") && i + 1 < args.length) {
+                tablebaseFile = args[++i];
+            } else if (arg.equals("--multipv") && i + 1 < args.length) {
+                multiPv = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--movetime") && i + 1 < args.length) {
+                limits = SearchLimits.moveTime(Long.parseLong(args[++i]));
+            } else if (arg.equals("--clock") && i + 1 < args.length) {
+                clock = Long.parseLong(args[++i]);
+            } else if (arg.equals("--inc") && i + 1 < args.length) {
+                increment = Long.parseLong(args[++i]);
+            } else if (arg.equals("--depth") && i + 1 < args.length) {
+                limits = SearchLimits.depth(Integer.parseInt(args[++i]));
+            } else if (arg.equals("--nodes") && i + 1 < args.length) {
+                limits = SearchLimits.nodes(Long.parseLong(args[++i]));
+            } else if (arg.startsWith("--")) {
+                System.err.println("Usage: java engine.Engine [--hash mb] [--threads n] [--nnue file] [--book file.bin]"
+                        + " [--tablebase file.tb] [--multipv k] [--movetime ms | --clock ms [--inc ms] | --depth n | --nodes n] [fen]");
+                System.exit(1);
+            } else {
+                fen.append(arg).append(' ');
+            }
+        }
+        if (clock >= 0) {
+            limits = SearchLimits.clock(clock, increment);
+        }
+        if (limits == null) {
+            limits = SearchLimits.moveTime(5000);
+        }
+
+        BitboardPosition root = new BitboardPosition();
+        root.setFromFen(fen.length() > 0 ? fen.toString() : BitboardPosition.START_FEN);
+        System.out.println("Position: " + root.toFen());
+
+        // Build the attack tables now so their one-off setup is not timed as search
+        MoveGenerator.generateLegal(root, new int[MoveGenerator.MAX_MOVES], 0);
+
+        Engine engine = new Engine(hashMegabytes, threads);
+        engine.setInfoStream(System.out);
+        engine.setMultiPv(multiPv);
+        if (network != null) {
+            try {
+                engine.setNetwork(NnueNetwork.load(Path.of(network)));
+            } catch (IOException e) {
+                System.err.println("Cannot load network: " + e.getMessage());
+                System.exit(1);
+            }
+            System.out.println("Network:  " + network + ", "
+                    + engine.search.getPosition().getAccumulator().getKernelName() + " kernels");
+        }
+        if (bookFile != null) {
+            try {
+                engine.setBook(PolyglotBook.open(Path.of(bookFile)));
+            } catch (IOException e) {
+                System.err.println("Cannot open book: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (tablebaseFile != null) {
+            try {
+                engine.setTablebase(Tablebase.open(Path.of(tablebaseFile)));
+            } catch (IOException e) {
+                System.err.println("Cannot open tablebase: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        Perft.AllocationCounter allocation = new Perft.AllocationCounter(threads > 1);
+        long start = System.nanoTime();
+        SearchResult result = engine.think(root, limits);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocation.allocatedBytes();
+
+        if (result.getDepth() == 0 && result.getBestMove() != Move.NONE
+                && (engine.getBook() != null || engine.getTablebase() != null)) {
+            boolean known = engine.getTablebase() != null && engine.getTablebase().probe(root) != Tablebase.UNKNOWN;
+            if (known) {
+                System.out.println(result);
+            }
+            System.out.println("bestmove " + Move.toUci(result.getBestMove()) + (known ? " (tablebase)" : " (book)"));
+            engine.shutdown();
+            return;
+        }
+        System.out.println("bestmove " + Move.toUci(result.getBestMove()));
+        printTimeToDepth(engine);
+        Perft.report(engine.getNodes(), elapsed, allocated);
+        printTableStatistics(engine.getTable());
+        printPawnTableStatistics(engine.getPawnTable());
+        if (engine.getTablebase() != null) {
+            System.out.printf("Tablebase: %d hits (main thread)%n", engine.search.getTablebaseHits());
+        }
+        engine.shutdown();
+    }
+
+    static void printTableStatistics(TranspositionTable table) {
+        System.out.printf("Hash:     %d MB, %.1f%% hits of %d probes, %d permille full, %d collisions%n",
+                table.sizeInMegabytes(), table.hitRate() * 100, table.getProbes(), table.hashfull(),
+                table.getCollisions());
+    }
+
+    static void printPawnTableStatistics(PawnHashTable pawnTable) {
+        System.out.printf("Pawns:    %d entries, %.1f%% hits of %d probes (main thread)%n",
+                pawnTable.size(), pawnTable.hitRate() * 100, pawnTable.getProbes());
+    }
+
+    /**
+     * Prints, per completed depth, the time and nodes it took to get there and the
+     * effective branching factor of that iteration.
+     */
+    static void printTimeToDepth(Engine engine) {
+        System.out.println();
+        System.out.println("Depth  Time (ms)        Nodes    EBF");
+        for (int depth = 1; depth <= engine.getCompletedDepth(); depth++) {
+            double branching = engine.getBranchingFactor(depth);
+            System.out.printf("%5d %10.1f %12d %6s%n", depth, engine.getTimeToDepthNanos(depth) / 1e6,
+                    engine.getNodesToDepth(depth), branching < 0 ? "-" : String.format("%.2f", branching));
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package engine;
+
+import static engine.BitboardPosition.BLACK;
+import static engine.BitboardPosition.WHITE;
+
+/**
+ * Static evaluation in centipawns from the side to move's point of view.
+ *
+ * Tapered: every term has a middlegame and an endgame value, blended by the game phase
+ * (how much non-pawn material is left). Material and piece-square terms come ready from
+ * BitboardPosition, which keeps them up to date as moves are made and unmade; mobility,
+ * king safety and pawn structure are computed here from the bitboards.
+ *
+ * Terms are packed into one int, middlegame in the low half and endgame in the high
+ * half, so they add up with plain integer addition.
+ */
+public final class Evaluation {
+    // Bonus for the side to move, about half of what one developing move gains in the opening,
+    // so odd and even search depths score the start position alike
+    private static final int TEMPO = 32;
+
+    // Mobility: bonus per square a piece reaches above a typical count for its type
+    private static final int[] MOBILITY_MIDGAME = {0, 4, 5, 2, 1, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 4, 5, 4, 2, 0};
+    private static final int[] MOBILITY_BASELINE = {0, 4, 6, 6, 12, 0};
+
+    // King safety: attack units per attacked square next to the king, by attacker type
+    private static final int[] KING_ATTACK_WEIGHT = {0, 2, 2, 3, 5, 0};
+    private static final int MAX_KING_DANGER = 500;
+    private static final int PAWN_SHIELD = 12;
+
+    // Pawn structure
+    private static final int DOUBLED = pack(-10, -20);
+    private static final int ISOLATED = pack(-10, -15);
+    private static final int BACKWARD = pack(-8, -10);
+    // Passed pawn bonus by rank counted from the pawn's own side (0 = its own back rank)
+    private static final int[] PASSED = {
+        pack(0, 0), pack(0, 0), pack(5, 10), pack(10, 15), pack(20, 30), pack(35, 55), pack(55, 90), pack(0, 0)};
+    private static final int PASSED_BLOCKED = pack(-5, -20);
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // Squares in front of a pawn on its own and the adjacent files; none of them may hold an enemy pawn for it to be passed
+    private static final long[][] PASSED_MASK = new long[2][64];
+    // The one or two ranks in front of the king on its own and the adjacent files
+    private static final long[][] SHIELD_MASK = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0) | (file < 7 ? FILES[file + 1] : 0);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int file = BitboardPosition.colOf(sq);
+            int row = BitboardPosition.rowOf(sq);
+            long span = FILES[file] | ADJACENT_FILES[file];
+            for (int r = 0; r < 8; r++) {
+                long rank = 0xFFL << (r * 8);
+                // White moves towards row 0, Black towards row 7
+                if (r < row) {
+                    PASSED_MASK[WHITE][sq] |= span & rank;
+                    if (row - r <= 2) {
+                        SHIELD_MASK[WHITE][sq] |= span & rank;
+                    }
+                } else if (r > row) {
+                    PASSED_MASK[BLACK][sq] |= span & rank;
+                    if (r - row <= 2) {
+                        SHIELD_MASK[BLACK][sq] |= span & rank;
+                    }
+                }
+            }
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    static int pack(int midgame, int endgame) {
+        return (endgame << 16) + midgame;
+    }
+
+    static int midgame(int score) {
+        return (short) score;
+    }
+
+    static int endgame(int score) {
+        return (short) ((score + 0x8000) >> 16);
+    }
+
+    public static int evaluate(BitboardPosition position) {
+        return evaluate(position, null);
+    }
+
+    /**
+     * Evaluates with the pawn structure looked up in, or added to, the given cache.
+     * A null cache scores the pawns every time.
+     */
+    public static int evaluate(BitboardPosition position, PawnHashTable pawnTable) {
+        int pawnScore;
+        long passed;
+        int slot = pawnTable == null ? -1 : pawnTable.probe(position.getPawnKey());
+        if (slot >= 0) {
+            pawnScore = pawnTable.score(slot);
+            passed = pawnTable.passed(slot);
+        } else {
+            passed = passedPawns(position, WHITE) | passedPawns(position, BLACK);
+            pawnScore = evaluatePawns(position, WHITE, passed) - evaluatePawns(position, BLACK, passed);
+            if (pawnTable != null) {
+                pawnTable.store(position.getPawnKey(), pawnScore, passed);
+            }
+        }
+
+        int score = pack(position.getPsqMidgame(), position.getPsqEndgame()) + pawnScore
+                + evaluatePassers(position, WHITE, passed) - evaluatePassers(position, BLACK, passed)
+                + evaluatePieces(position, WHITE) - evaluatePieces(position, BLACK);
+
+        int phase = Math.min(position.getPhase(), PieceSquareTables.MAX_PHASE);
+        int blended = (midgame(score) * phase + endgame(score) * (PieceSquareTables.MAX_PHASE - phase))
+                / PieceSquareTables.MAX_PHASE;
+        return (position.getSideToMove() == WHITE ? blended : -blended) + TEMPO;
+    }
+
+    /**
+     * Mobility and king safety for one side: knights, bishops, rooks and queens score the
+     * squares they reach that hold no friendly piece and are not covered by enemy pawns,
+     * and pressure on the squares around the enemy king. The side's own pawn shield is
+     * scored too. Returns the packed score from that side's point of view.
+     */
+    private static int evaluatePieces(BitboardPosition position, int us) {
+        int them = 1 - us;
+        long occupied = position.occupied();
+        long mobilityArea = ~position.pieces(us) & ~pawnAttacks(them, position.pieces(them, BitboardPosition.PAWN));
+        int enemyKing = position.kingSquare(them);
+        long kingZone = enemyKing == BitboardPosition.NO_SQUARE ? 0
+                : Attacks.kingAttacks(enemyKing) | BitboardPosition.bit(enemyKing);
+
+        int midgame = 0;
+        int endgame = 0;
+        int kingAttackers = 0;
+        int kingAttackWeight = 0;
+        for (int type = BitboardPosition.KNIGHT; type <= BitboardPosition.QUEEN; type++) {
+            long pieces = position.pieces(us, type);
+            while (pieces != 0) {
+                int sq = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long attacks = Attacks.pieceAttacks(type, sq, occupied);
+                int mobility = Long.bitCount(attacks & mobilityArea) - MOBILITY_BASELINE[type];
+                midgame += MOBILITY_MIDGAME[type] * mobility;
+                endgame += MOBILITY_ENDGAME[type] * mobility;
+                long zoneAttacks = attacks & kingZone;
+                if (zoneAttacks != 0) {
+                    kingAttackers++;
+                    kingAttackWeight += KING_ATTACK_WEIGHT[type] * Long.bitCount(zoneAttacks);
+                }
+            }
+        }
+        // A lone attacker is rarely dangerous; danger grows with the square of the pressure
+        if (kingAttackers >= 2) {
+            midgame += Math.min(kingAttackWeight * kingAttackWeight, MAX_KING_DANGER);
+        }
+
+        int ourKing = position.kingSquare(us);
+        if (ourKing != BitboardPosition.NO_SQUARE) {
+            midgame += PAWN_SHIELD * Long.bitCount(SHIELD_MASK[us][ourKing] & position.pieces(us, BitboardPosition.PAWN));
+        }
+        return pack(midgame, endgame);
+    }
+
+    /**
+     * Pawns of one side with no enemy pawn in front of them or on the adjacent files,
+     * and no friendly pawn in front on their own file.
+     */
+    private static long passedPawns(BitboardPosition position, int us) {
+        long ours = position.pieces(us, BitboardPosition.PAWN);
+        long theirs = position.pieces(1 - us, BitboardPosition.PAWN);
+        long passed = 0;
+        long pawns = ours;
+        while (pawns != 0) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long ahead = PASSED_MASK[us][sq];
+            if ((ahead & theirs) == 0 && (ahead & FILES[BitboardPosition.colOf(sq)] & ours) == 0) {
+                passed |= BitboardPosition.bit(sq);
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Doubled, isolated, backward and passed pawns of one side. Depends on the pawns alone,
+     * so the result can be cached on the pawn key. Returns the packed score.
+     */
+    private static int evaluatePawns(BitboardPosition position, int us, long passed) {
+        int them = 1 - us;
+        long ours = position.pieces(us, BitboardPosition.PAWN);
+        long theirs = position.pieces(them, BitboardPosition.PAWN);
+        int score = 0;
+        long pawns = ours;
+        while (pawns != 0) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int file = BitboardPosition.colOf(sq);
+            long ahead = PASSED_MASK[us][sq];
+
+            if ((ahead & FILES[file] & ours) != 0) {
+                score += DOUBLED;
+            }
+            if ((ADJACENT_FILES[file] & ours) == 0) {
+                score += ISOLATED;
+            } else if ((ADJACENT_FILES[file] & ~ahead & ours) == 0) {
+                // No neighbour level or behind to support its advance, and the stop square is covered
+                int stop = us == WHITE ? sq - 8 : sq + 8;
+                if ((Attacks.pawnAttacks(us, stop) & theirs) != 0) {
+                    score += BACKWARD;
+                }
+            }
+            if ((passed & BitboardPosition.bit(sq)) != 0) {
+                score += PASSED[relativeRank(us, sq)];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * The passed pawn terms that depend on other pieces: a penalty when an enemy piece
+     * blocks the pawn, and, in the endgame, a bonus growing with the pawn's rank when the
+     * enemy king is further from its stop square than our own king.
+     */
+    private static int evaluatePassers(BitboardPosition position, int us, long passed) {
+        int them = 1 - us;
+        int ourKing = position.kingSquare(us);
+        int theirKing = position.kingSquare(them);
+        int score = 0;
+        long passers = passed & position.pieces(us);
+        while (passers != 0) {
+            int sq = Long.numberOfTrailingZeros(passers);
+            passers &= passers - 1;
+            int stop = us == WHITE ? sq - 8 : sq + 8;
+            if ((position.pieces(them) & BitboardPosition.bit(stop)) != 0) {
+                score += PASSED_BLOCKED;
+            }
+            if (ourKing != BitboardPosition.NO_SQUARE && theirKing != BitboardPosition.NO_SQUARE) {
+                int proximity = distance(theirKing, stop) * 2 - distance(ourKing, stop);
+                score += pack(0, proximity * relativeRank(us, sq));
+            }
+        }
+        return score;
+    }
+
+    /** Rank of the square counted from the colour's own side, 0 being its back rank. */
+    private static int relativeRank(int color, int square) {
+        int row = BitboardPosition.rowOf(square);
+        return color == WHITE ? 7 - row : row;
+    }
+
+    /** King steps between two squares. */
+    private static int distance(int a, int b) {
+        return Math.max(Math.abs(BitboardPosition.colOf(a) - BitboardPosition.colOf(b)),
+                Math.abs(BitboardPosition.rowOf(a) - BitboardPosition.rowOf(b)));
+    }
+
+    /**
+     * Squares attacked by the given pawns of one colour.
+     */
+    private static long pawnAttacks(int color, long pawns) {
+        return color == WHITE
+                ? ((pawns & ~FILE_A) >>> 9) | ((pawns & ~FILE_H) >>> 7)
+                : ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9);
+    }
+}
@@ -0,0 +1,77 @@
+package engine;
+
+/**
+ * Packed move encoding. A move is a plain int so move lists can live in
+ * preallocated int[] buffers:
+ * bits 0-5 from square, bits 6-11 to square, bits 12-15 flags.
+ * Squares use BitboardPosition numbering (row * 8 + col, a8 = 0).
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    // Flags (bits 12-15); bit 2 of the flag marks captures, bit 3 promotions
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;          // + 0..3 for knight, bishop, rook, queen
+    public static final int PROMOTION_CAPTURE = 12; // + 0..3 for knight, bishop, rook, queen
+
+    private Move() {
+    }
+
+    public static int create(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    /**
+     * Builds a promotion move; promotionType is one of BitboardPosition.KNIGHT..QUEEN.
+     */
+    public static int createPromotion(int from, int to, int promotionType, boolean capture) {
+        int flags = (capture ? PROMOTION_CAPTURE : PROMOTION) + (promotionType - BitboardPosition.KNIGHT);
+        return create(from, to, flags);
+    }
+
+    public static int from(int move) { return move & 63; }
+    public static int to(int move) { return (move >>> 6) & 63; }
+    public static int flags(int move) { return (move >>> 12) & 15; }
+
+    public static boolean isCapture(int move) { return (flags(move) & CAPTURE) != 0; }
+    public static boolean isPromotion(int move) { return (flags(move) & PROMOTION) != 0; }
+    public static boolean isEnPassant(int move) { return flags(move) == EN_PASSANT; }
+    public static boolean isDoublePush(int move) { return flags(move) == DOUBLE_PUSH; }
+    public static boolean isCastle(int move) {
+        int f = flags(move);
+        return f == KING_CASTLE || f == QUEEN_CASTLE;
+    }
+
+    /**
+     * Piece type a promotion turns into, or BitboardPosition.NO_PIECE for other moves.
+     */
+    public static int promotionType(int move) {
+        return isPromotion(move) ? BitboardPosition.KNIGHT + (flags(move) & 3) : BitboardPosition.NO_PIECE;
+    }
+
+    /**
+     * Square name such as "e4" (col 0 = a-file, row 0 = rank 8).
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + BitboardPosition.colOf(square)) + (char) ('8' - BitboardPosition.rowOf(square));
+    }
+
+    /**
+     * Long algebraic (UCI) notation, e.g. "e2e4" or "e7e8q".
+     */
+    public static String toUci(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        String s = squareName(from(move)) + squareName(to(move));
+        if (isPromotion(move)) {
+            s += "nbrq".charAt(promotionType(move) - BitboardPosition.KNIGHT);
+        }
+        return s;
+    }
+}
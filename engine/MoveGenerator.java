@@ -0,0 +1,304 @@
+package engine;
+
+import static engine.BitboardPosition.BISHOP;
+import static engine.BitboardPosition.KING;
+import static engine.BitboardPosition.KNIGHT;
+import static engine.BitboardPosition.PAWN;
+import static engine.BitboardPosition.QUEEN;
+import static engine.BitboardPosition.ROOK;
+import static engine.BitboardPosition.WHITE;
+
+/**
+ * Bitboard move generator. Moves are written as packed ints (see Move) into a
+ * caller-supplied buffer, so generating moves never allocates.
+ */
+public final class MoveGenerator {
+    // No legal chess position has more than 218 moves
+    public static final int MAX_MOVES = 256;
+
+    private static final long ROW_0 = 0xFFL;            // rank 8
+    private static final long ROW_7 = 0xFFL << 56;      // rank 1
+    private static final long ROW_2 = 0xFFL << 16;      // rank 6, black double-push landing row
+    private static final long ROW_5 = 0xFFL << 40;      // rank 3, white double-push landing row
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes all pseudo-legal moves for the side to move into moves[offset..] and
+     * returns the index after the last move written. Castling is only generated
+     * when the king does not start in, pass through or land on an attacked square;
+     * other moves may still leave the own king in check.
+     */
+    public static int generatePseudoLegal(BitboardPosition pos, int[] moves, int offset) {
+        int us = pos.getSideToMove();
+        long targets = ~pos.pieces(us);
+        int n = generatePawnMoves(pos, moves, offset, pos.pieces(us, PAWN), ~0L, false);
+        n = generatePieceMoves(pos, moves, n, targets);
+        return generateCastling(pos, moves, n);
+    }
+
+    /**
+     * Writes only captures and promotions (including en passant).
+     */
+    public static int generateCaptures(BitboardPosition pos, int[] moves, int offset) {
+        int us = pos.getSideToMove();
+        int n = generatePawnMoves(pos, moves, offset, pos.pieces(us, PAWN), ~0L, true);
+        return generatePieceMoves(pos, moves, n, pos.pieces(1 - us));
+    }
+
+    /**
+     * Writes only the fully legal moves for the side to move and returns the end index.
+     * Checkers, pinned pieces and the check-evasion mask are computed once for the
+     * position, so moves never have to be played to find out whether they are legal.
+     * Positions without a king of the side to move fall back to pseudo-legal moves.
+     */
+    public static int generateLegal(BitboardPosition pos, int[] moves, int offset) {
+        int us = pos.getSideToMove();
+        int them = 1 - us;
+        int king = pos.kingSquare(us);
+        if (king == BitboardPosition.NO_SQUARE) {
+            return generatePseudoLegal(pos, moves, offset);
+        }
+
+        long own = pos.pieces(us);
+        long enemies = pos.pieces(them);
+        long occupied = pos.occupied();
+        long checkers = pos.attackersTo(king, occupied) & enemies;
+
+        // King steps: test each target with the king lifted off the board so it can't hide behind itself
+        int n = offset;
+        long kingOff = occupied ^ BitboardPosition.bit(king);
+        long steps = Attacks.kingAttacks(king) & ~own;
+        while (steps != 0) {
+            int to = Long.numberOfTrailingZeros(steps);
+            steps &= steps - 1;
+            if ((pos.attackersTo(to, kingOff) & enemies) == 0) {
+                int flags = (enemies & BitboardPosition.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET;
+                moves[n++] = Move.create(king, to, flags);
+            }
+        }
+
+        // In double check only the king may move
+        if (Long.bitCount(checkers) > 1) {
+            return n;
+        }
+
+        // Evasion mask: capture the checker or block the line to it
+        long checkMask = ~0L;
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | Attacks.between(king, checker);
+        }
+
+        long pinned = pinnedPieces(pos, us, king);
+
+        // Unpinned pieces use the shared mask; pinned ones are restricted to their pin line
+        long targets = ~own & checkMask;
+        for (int type = KNIGHT; type <= QUEEN; type++) {
+            long pieces = pos.pieces(us, type);
+            while (pieces != 0) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long attacks = Attacks.pieceAttacks(type, from, occupied) & targets;
+                if ((pinned & BitboardPosition.bit(from)) != 0) {
+                    attacks &= Attacks.line(king, from);
+                }
+                n = serialize(moves, n, from, attacks, enemies);
+            }
+        }
+
+        long pawns = pos.pieces(us, PAWN);
+        int start = n;
+        n = generatePawnMoves(pos, moves, n, pawns & ~pinned, checkMask, false);
+        long pinnedPawns = pawns & pinned;
+        while (pinnedPawns != 0) {
+            int from = Long.numberOfTrailingZeros(pinnedPawns);
+            pinnedPawns &= pinnedPawns - 1;
+            n = generatePawnMoves(pos, moves, n, BitboardPosition.bit(from),
+                    checkMask & Attacks.line(king, from), false);
+        }
+
+        // En passant can expose the king along the rank both pawns leave; it is rare,
+        // so those few moves are verified by playing them
+        for (int i = start; i < n; i++) {
+            int move = moves[i];
+            if (Move.isEnPassant(move)) {
+                pos.makeMove(move);
+                boolean illegal = pos.isInCheck(us);
+                pos.unmakeMove(move);
+                if (illegal) {
+                    moves[i--] = moves[--n];
+                }
+            }
+        }
+
+        if (checkers == 0) {
+            n = generateCastling(pos, moves, n);
+        }
+        return n;
+    }
+
+    /**
+     * Pieces of the given color that are pinned to their king by an enemy slider.
+     */
+    public static long pinnedPieces(BitboardPosition pos, int color, int king) {
+        long occupied = pos.occupied();
+        long enemies = pos.pieces(1 - color);
+        long snipers = (Attacks.rookAttacks(king, enemies)
+                & (pos.pieces(1 - color, ROOK) | pos.pieces(1 - color, QUEEN)))
+                | (Attacks.bishopAttacks(king, enemies)
+                & (pos.pieces(1 - color, BISHOP) | pos.pieces(1 - color, QUEEN)));
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & pos.pieces(color);
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Knight, bishop, rook, queen and king steps onto the target squares.
+     */
+    static int generatePieceMoves(BitboardPosition pos, int[] moves, int n, long targets) {
+        int us = pos.getSideToMove();
+        long occupied = pos.occupied();
+        long enemies = pos.pieces(1 - us);
+
+        for (int type = KNIGHT; type <= KING; type++) {
+            long pieces = pos.pieces(us, type);
+            while (pieces != 0) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long attacks = Attacks.pieceAttacks(type, from, occupied) & targets;
+                n = serialize(moves, n, from, attacks, enemies);
+            }
+        }
+        return n;
+    }
+
+    static int serialize(int[] moves, int n, int from, long attacks, long enemies) {
+        while (attacks != 0) {
+            int to = Long.numberOfTrailingZeros(attacks);
+            attacks &= attacks - 1;
+            int flags = (enemies & BitboardPosition.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET;
+            moves[n++] = Move.create(from, to, flags);
+        }
+        return n;
+    }
+
+    /**
+     * Pawn pushes, captures, promotions and en passant for the given pawns. Only destinations
+     * inside the mask are emitted (en passant is tested against the captured pawn's square too).
+     * With capturesOnly set, quiet pushes are skipped but quiet promotions are kept.
+     */
+    static int generatePawnMoves(BitboardPosition pos, int[] moves, int n, long pawns, long mask,
+                                 boolean capturesOnly) {
+        int us = pos.getSideToMove();
+        long empty = ~pos.occupied();
+        long enemies = pos.pieces(1 - us);
+        // White pawns move towards row 0 (lower square numbers)
+        int push = us == WHITE ? -8 : 8;
+        long promotionRow = us == WHITE ? ROW_0 : ROW_7;
+        long doublePushRow = us == WHITE ? ROW_5 : ROW_2;
+
+        long single = (us == WHITE ? pawns >>> 8 : pawns << 8) & empty;
+        long dbl = (us == WHITE ? (single & doublePushRow) >>> 8 : (single & doublePushRow) << 8) & empty;
+        single &= mask;
+        dbl &= mask;
+
+        long promotions = single & promotionRow;
+        while (promotions != 0) {
+            int to = Long.numberOfTrailingZeros(promotions);
+            promotions &= promotions - 1;
+            n = addPromotions(moves, n, to - push, to, false);
+        }
+        if (!capturesOnly) {
+            long quiet = single & ~promotionRow;
+            while (quiet != 0) {
+                int to = Long.numberOfTrailingZeros(quiet);
+                quiet &= quiet - 1;
+                moves[n++] = Move.create(to - push, to, Move.QUIET);
+            }
+            while (dbl != 0) {
+                int to = Long.numberOfTrailingZeros(dbl);
+                dbl &= dbl - 1;
+                moves[n++] = Move.create(to - 2 * push, to, Move.DOUBLE_PUSH);
+            }
+        }
+
+        long p = pawns;
+        while (p != 0) {
+            int from = Long.numberOfTrailingZeros(p);
+            p &= p - 1;
+            long attacks = Attacks.pawnAttacks(us, from);
+            long captures = attacks & enemies & mask;
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                if ((promotionRow & BitboardPosition.bit(to)) != 0) {
+                    n = addPromotions(moves, n, from, to, true);
+                } else {
+                    moves[n++] = Move.create(from, to, Move.CAPTURE);
+                }
+            }
+
+            int ep = pos.getEpSquare();
+            if (ep != BitboardPosition.NO_SQUARE && (attacks & BitboardPosition.bit(ep)) != 0
+                    && (mask & (BitboardPosition.bit(ep) | BitboardPosition.bit(ep - push))) != 0) {
+                moves[n++] = Move.create(from, ep, Move.EN_PASSANT);
+            }
+        }
+        return n;
+    }
+
+    private static int addPromotions(int[] moves, int n, int from, int to, boolean capture) {
+        // Queen first so a move ordering pass that keeps generation order tries it early
+        moves[n++] = Move.createPromotion(from, to, QUEEN, capture);
+        moves[n++] = Move.createPromotion(from, to, KNIGHT, capture);
+        moves[n++] = Move.createPromotion(from, to, ROOK, capture);
+        moves[n++] = Move.createPromotion(from, to, BISHOP, capture);
+        return n;
+    }
+
+    static int generateCastling(BitboardPosition pos, int[] moves, int n) {
+        int us = pos.getSideToMove();
+        int rights = pos.getCastlingRights();
+        if (us == WHITE) {
+            rights &= BitboardPosition.WHITE_KINGSIDE | BitboardPosition.WHITE_QUEENSIDE;
+        } else {
+            rights &= BitboardPosition.BLACK_KINGSIDE | BitboardPosition.BLACK_QUEENSIDE;
+        }
+        if (rights == 0) {
+            return n;
+        }
+
+        int them = 1 - us;
+        int row = us == WHITE ? 7 : 0;
+        int king = BitboardPosition.square(4, row);
+        if (pos.kingSquare(us) != king || pos.isSquareAttacked(king, them)) {
+            return n;
+        }
+        long occupied = pos.occupied();
+
+        int kingSide = us == WHITE ? BitboardPosition.WHITE_KINGSIDE : BitboardPosition.BLACK_KINGSIDE;
+        if ((rights & kingSide) != 0
+                && (occupied & Attacks.between(king, BitboardPosition.square(7, row))) == 0
+                && !pos.isSquareAttacked(king + 1, them)
+                && !pos.isSquareAttacked(king + 2, them)) {
+            moves[n++] = Move.create(king, king + 2, Move.KING_CASTLE);
+        }
+        if ((rights & ~kingSide) != 0
+                && (occupied & Attacks.between(king, BitboardPosition.square(0, row))) == 0
+                && !pos.isSquareAttacked(king - 1, them)
+                && !pos.isSquareAttacked(king - 2, them)) {
+            moves[n++] = Move.create(king, king - 2, Move.QUEEN_CASTLE);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,91 @@
+package engine;
+
+/**
+ * The feature transformer output of a network for one board, both perspectives, kept up
+ * to date as pieces are added, removed and moved: each change adds or subtracts one
+ * weight row per perspective instead of recomputing the sum over all pieces.
+ * Attach it with BitboardPosition.setAccumulator; one per board, not thread-safe.
+ */
+public final class NnueAccumulator {
+    private static final int BLACK_OFFSET = NnueNetwork.HIDDEN;
+
+    private final NnueNetwork network;
+    private final NnueKernels kernels;
+    private final short[] values = new short[2 * NnueNetwork.HIDDEN]; // White's half, then Black's
+    // Scratch for evaluate
+    private final short[] input = new short[2 * NnueNetwork.HIDDEN];
+    private final int[] sums = new int[NnueNetwork.L1];
+
+    public NnueAccumulator(NnueNetwork network) {
+        this(network, true);
+    }
+
+    /**
+     * @param vector use the Vector API kernels when available; false forces the scalar ones
+     */
+    public NnueAccumulator(NnueNetwork network, boolean vector) {
+        this.network = network;
+        this.kernels = vector ? NnueKernels.preferred() : NnueKernels.scalar();
+        reset();
+    }
+
+    /** True when the Vector API kernels can be used in this JVM. */
+    public static boolean isVectorAvailable() {
+        return NnueKernels.isVectorAvailable();
+    }
+
+    /** Name of the kernels in use, for reports. */
+    public String getKernelName() {
+        return kernels.name();
+    }
+
+    public NnueNetwork getNetwork() {
+        return network;
+    }
+
+    /** Empty board: biases only. */
+    void reset() {
+        System.arraycopy(network.featureBiases, 0, values, 0, NnueNetwork.HIDDEN);
+        System.arraycopy(network.featureBiases, 0, values, BLACK_OFFSET, NnueNetwork.HIDDEN);
+    }
+
+    /** Recomputes both perspectives from the pieces on the board. */
+    void refresh(BitboardPosition position) {
+        reset();
+        long pieces = position.occupied();
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            add(position.pieceAt(sq), sq);
+        }
+    }
+
+    void add(int code, int square) {
+        kernels.add(values, 0, network.featureWeights, row(BitboardPosition.WHITE, code, square));
+        kernels.add(values, BLACK_OFFSET, network.featureWeights, row(BitboardPosition.BLACK, code, square));
+    }
+
+    void remove(int code, int square) {
+        kernels.subtract(values, 0, network.featureWeights, row(BitboardPosition.WHITE, code, square));
+        kernels.subtract(values, BLACK_OFFSET, network.featureWeights, row(BitboardPosition.BLACK, code, square));
+    }
+
+    void move(int code, int from, int to) {
+        kernels.addSubtract(values, 0, network.featureWeights,
+                row(BitboardPosition.WHITE, code, to), row(BitboardPosition.WHITE, code, from));
+        kernels.addSubtract(values, BLACK_OFFSET, network.featureWeights,
+                row(BitboardPosition.BLACK, code, to), row(BitboardPosition.BLACK, code, from));
+    }
+
+    /**
+     * Network evaluation in centipawns from the given side's point of view.
+     */
+    public int evaluate(int sideToMove) {
+        int us = sideToMove == BitboardPosition.WHITE ? 0 : BLACK_OFFSET;
+        return kernels.forward(network, values, us, BLACK_OFFSET - us, input, sums);
+    }
+
+    private static int row(int perspective, int code, int square) {
+        return NnueNetwork.feature(perspective, code, square) * NnueNetwork.HIDDEN;
+    }
+}
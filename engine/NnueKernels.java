@@ -0,0 +1,119 @@
+package engine;
+
+/**
+ * The arithmetic of the network: accumulator row updates and the dense layers.
+ * The SIMD implementation uses the incubating Vector API and is only loaded when the
+ * jdk.incubator.vector module is present (run with --add-modules jdk.incubator.vector);
+ * otherwise, or with -Dchess.nnue.scalar=true, plain loops are used.
+ */
+abstract class NnueKernels {
+    private static final NnueKernels PREFERRED = loadPreferred();
+
+    static NnueKernels preferred() {
+        return PREFERRED;
+    }
+
+    static NnueKernels scalar() {
+        return ScalarKernels.INSTANCE;
+    }
+
+    static boolean isVectorAvailable() {
+        return PREFERRED != ScalarKernels.INSTANCE;
+    }
+
+    private static NnueKernels loadPreferred() {
+        if (Boolean.getBoolean("chess.nnue.scalar")
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return ScalarKernels.INSTANCE;
+        }
+        try {
+            // By name, so this class links without the module
+            return (NnueKernels) Class.forName("engine.NnueVectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ScalarKernels.INSTANCE;
+        }
+    }
+
+    abstract String name();
+
+    /** accumulator[offset + i] += weights[row + i] for i < HIDDEN */
+    abstract void add(short[] accumulator, int offset, short[] weights, int row);
+
+    /** accumulator[offset + i] -= weights[row + i] for i < HIDDEN */
+    abstract void subtract(short[] accumulator, int offset, short[] weights, int row);
+
+    /** accumulator[offset + i] += weights[addRow + i] - weights[subtractRow + i] for i < HIDDEN */
+    abstract void addSubtract(short[] accumulator, int offset, short[] weights, int addRow, int subtractRow);
+
+    /**
+     * Runs the layers after the feature transformer on the two accumulator halves, the
+     * side to move's first, and returns the output in centipawns.
+     */
+    abstract int forward(NnueNetwork network, short[] accumulator, int usOffset, int themOffset,
+            short[] input, int[] sums);
+
+    /** The output layer on the L1 sums. */
+    static int output(NnueNetwork network, int[] sums) {
+        int output = network.outputBias;
+        for (int j = 0; j < NnueNetwork.L1; j++) {
+            output += Math.max(0, Math.min(NnueNetwork.MAX_ACTIVATION, sums[j] >> network.l1Shift))
+                    * network.outputWeights[j];
+        }
+        return output / network.outputDivisor;
+    }
+
+    private static final class ScalarKernels extends NnueKernels {
+        static final ScalarKernels INSTANCE = new ScalarKernels();
+
+        @Override
+        String name() {
+            return "scalar";
+        }
+
+        @Override
+        void add(short[] accumulator, int offset, short[] weights, int row) {
+            for (int i = 0; i < NnueNetwork.HIDDEN; i++) {
+                accumulator[offset + i] += weights[row + i];
+            }
+        }
+
+        @Override
+        void subtract(short[] accumulator, int offset, short[] weights, int row) {
+            for (int i = 0; i < NnueNetwork.HIDDEN; i++) {
+                accumulator[offset + i] -= weights[row + i];
+            }
+        }
+
+        @Override
+        void addSubtract(short[] accumulator, int offset, short[] weights, int addRow, int subtractRow) {
+            for (int i = 0; i < NnueNetwork.HIDDEN; i++) {
+                accumulator[offset + i] += weights[addRow + i] - weights[subtractRow + i];
+            }
+        }
+
+        @Override
+        int forward(NnueNetwork network, short[] accumulator, int usOffset, int themOffset, short[] input, int[] sums) {
+            for (int i = 0; i < NnueNetwork.HIDDEN; i++) {
+                input[i] = clip(accumulator[usOffset + i]);
+                input[NnueNetwork.HIDDEN + i] = clip(accumulator[themOffset + i]);
+            }
+            System.arraycopy(network.l1Biases, 0, sums, 0, NnueNetwork.L1);
+            int[] weights = network.l1Weights;
+            for (int i = 0; i < 2 * NnueNetwork.HIDDEN; i++) {
+                int activation = input[i];
+                if (activation == 0) {
+                    continue;
+                }
+                int row = i * NnueNetwork.L1;
+                for (int j = 0; j < NnueNetwork.L1; j++) {
+                    sums[j] += activation * weights[row + j];
+                }
+            }
+            return output(network, sums);
+        }
+
+        private static short clip(int value) {
+            return (short) Math.max(0, Math.min(NnueNetwork.MAX_ACTIVATION, value));
+        }
+    }
+}
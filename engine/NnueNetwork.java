@@ -0,0 +1,176 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Weights of an efficiently updatable neural network (NNUE) evaluation.
+ *
+ * Architecture, evaluated from the side to move:
+ *   768 inputs per perspective, one per (own/their piece type, square), the board seen
+ *   from that side (Black's squares mirrored vertically)
+ *   -> feature transformer to HIDDEN int16 neurons per perspective; this is the
+ *      accumulator, updated incrementally as pieces move (see NnueAccumulator)
+ *   -> clipped to 0..127 (int8), side to move's half first: 2 * HIDDEN inputs
+ *   -> dense layer of L1 neurons, int8 weights, int32 sums shifted right by l1Shift,
+ *      clipped to 0..127; computed input by input, skipping the inputs clipped to zero
+ *   -> one output with int8 weights, divided by outputDivisor to give centipawns.
+ *
+ * File format, little-endian: int magic "NNUE", int version, int HIDDEN, int L1,
+ * int l1Shift, int outputDivisor, then the feature transformer biases (HIDDEN int16) and
+ * weights (768 * HIDDEN int16, feature-major), the L1 biases (L1 int32) and weights
+ * (L1 * 2 * HIDDEN int8, neuron-major), the output bias (int32) and weights (L1 int8).
+ * The file is memory-mapped and read in bulk, so loading takes milliseconds.
+ *
+ * Usage: java engine.NnueNetwork --bootstrap file
+ * writes the bootstrap network (see bootstrap()) for use with the engine's --nnue option.
+ */
+public final class NnueNetwork {
+    public static final int FEATURES = 768;
+    public static final int HIDDEN = 256;
+    public static final int L1 = 32;
+    public static final int MAX_ACTIVATION = 127;
+
+    private static final int MAGIC = 0x45554E4E; // "NNUE" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * 4;
+
+    final short[] featureBiases = new short[HIDDEN];
+    final short[] featureWeights = new short[FEATURES * HIDDEN];
+    final int[] l1Biases = new int[L1];
+    // int8 weights widened to int and stored input-major, so one input updates all L1 sums at once
+    final int[] l1Weights = new int[2 * HIDDEN * L1];
+    final int[] outputWeights = new int[L1];
+    int outputBias;
+    int l1Shift;
+    int outputDivisor = 1;
+
+    private NnueNetwork() {
+    }
+
+    /**
+     * Input index of a piece seen from one side: its own pieces come first, and Black
+     * sees the board flipped so both sides use the same weights.
+     */
+    static int feature(int perspective, int code, int square) {
+        int relative = perspective == BitboardPosition.WHITE ? square : square ^ 56;
+        int side = BitboardPosition.colorOfCode(code) == perspective ? 0 : 6;
+        return ((side + BitboardPosition.typeOfCode(code)) << 6) | relative;
+    }
+
+    public static NnueNetwork load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() != fileSize() || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getInt() != HIDDEN || buffer.getInt() != L1) {
+                throw new IOException("Not a " + HIDDEN + "x" + L1 + " network file: " + path);
+            }
+            NnueNetwork network = new NnueNetwork();
+            network.l1Shift = buffer.getInt();
+            network.outputDivisor = buffer.getInt();
+            if (network.outputDivisor <= 0 || network.l1Shift < 0 || network.l1Shift > 31) {
+                throw new IOException("Corrupt network header: " + path);
+            }
+            buffer.asShortBuffer().get(network.featureBiases);
+            buffer.position(buffer.position() + HIDDEN * 2);
+            buffer.asShortBuffer().get(network.featureWeights);
+            buffer.position(buffer.position() + FEATURES * HIDDEN * 2);
+            buffer.asIntBuffer().get(network.l1Biases);
+            buffer.position(buffer.position() + L1 * 4);
+            for (int neuron = 0; neuron < L1; neuron++) {
+                for (int input = 0; input < 2 * HIDDEN; input++) {
+                    network.l1Weights[input * L1 + neuron] = buffer.get();
+                }
+            }
+            network.outputBias = buffer.getInt();
+            for (int i = 0; i < L1; i++) {
+                network.outputWeights[i] = buffer.get();
+            }
+            return network;
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(fileSize()).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(HIDDEN).putInt(L1).putInt(l1Shift).putInt(outputDivisor);
+        for (short b : featureBiases) {
+            buffer.putShort(b);
+        }
+        for (short w : featureWeights) {
+            buffer.putShort(w);
+        }
+        for (int b : l1Biases) {
+            buffer.putInt(b);
+        }
+        for (int neuron = 0; neuron < L1; neuron++) {
+            for (int input = 0; input < 2 * HIDDEN; input++) {
+                buffer.put((byte) l1Weights[input * L1 + neuron]);
+            }
+        }
+        buffer.putInt(outputBias);
+        for (int w : outputWeights) {
+            buffer.put((byte) w);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static int fileSize() {
+        return HEADER_BYTES + HIDDEN * 2 + FEATURES * HIDDEN * 2 + L1 * 4 + L1 * 2 * HIDDEN + 4 + L1;
+    }
+
+    /**
+     * A hand-built network that reproduces the middlegame material and piece-square score
+     * of PieceSquareTables, in steps of 10 centipawns per piece, so the network path can
+     * be used and measured before trained weights exist. Nine hidden neurons per
+     * perspective sum the own pawns (four, by pairs of files), knights, bishops, rooks,
+     * queens and king; the L1 layer passes them through and the output adds ours and
+     * subtracts theirs. A second queen saturates its neuron. The remaining neurons have
+     * zero weights; the accumulator still updates them, but their zero activations are
+     * skipped in the L1 layer, which a trained network with more active neurons cannot do
+     * as often.
+     */
+    public static NnueNetwork bootstrap() {
+        final int unit = 10;
+        final int kingBias = 64; // keeps the king's piece-square sum, which may be negative, above zero
+        NnueNetwork network = new NnueNetwork();
+        network.featureBiases[8] = kingBias;
+        for (int type = BitboardPosition.PAWN; type <= BitboardPosition.KING; type++) {
+            int code = BitboardPosition.pieceCode(BitboardPosition.WHITE, type);
+            for (int sq = 0; sq < 64; sq++) {
+                int neuron = type == BitboardPosition.PAWN ? BitboardPosition.colOf(sq) / 2 : type + 3;
+                // Own piece seen from White is a white piece on the same square
+                int feature = feature(BitboardPosition.WHITE, code, sq);
+                network.featureWeights[feature * HIDDEN + neuron] =
+                        (short) Math.round(PieceSquareTables.midgame(code, sq) / (double) unit);
+            }
+        }
+        for (int neuron = 0; neuron < 9; neuron++) {
+            network.l1Weights[neuron * L1 + neuron] = 1;
+            network.l1Weights[(HIDDEN + neuron) * L1 + neuron + 9] = 1;
+            network.outputWeights[neuron] = unit;
+            network.outputWeights[neuron + 9] = -unit;
+        }
+        return network;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 || !args[0].equals("--bootstrap")) {
+            System.err.println("Usage: java engine.NnueNetwork --bootstrap file");
+            System.exit(1);
+        }
+        bootstrap().save(Path.of(args[1]));
+        System.out.println("Wrote " + args[1] + " (" + fileSize() + " bytes)");
+    }
+}
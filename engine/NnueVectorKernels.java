@@ -0,0 +1,87 @@
+package engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the widest vectors the CPU supports (AVX2 or AVX-512 on x86).
+ * HIDDEN and L1 are multiples of every vector length, so there are no tail loops.
+ * Loaded reflectively by NnueKernels; never reference this class directly.
+ */
+final class NnueVectorKernels extends NnueKernels {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, SHORTS.vectorShape());
+
+    @Override
+    String name() {
+        return "vector " + SHORTS.vectorBitSize() + "-bit";
+    }
+
+    @Override
+    void add(short[] accumulator, int offset, short[] weights, int row) {
+        for (int i = 0; i < NnueNetwork.HIDDEN; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, offset + i)
+                    .add(ShortVector.fromArray(SHORTS, weights, row + i))
+                    .intoArray(accumulator, offset + i);
+        }
+    }
+
+    @Override
+    void subtract(short[] accumulator, int offset, short[] weights, int row) {
+        for (int i = 0; i < NnueNetwork.HIDDEN; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, offset + i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, row + i))
+                    .intoArray(accumulator, offset + i);
+        }
+    }
+
+    @Override
+    void addSubtract(short[] accumulator, int offset, short[] weights, int addRow, int subtractRow) {
+        for (int i = 0; i < NnueNetwork.HIDDEN; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, offset + i)
+                    .add(ShortVector.fromArray(SHORTS, weights, addRow + i))
+                    .sub(ShortVector.fromArray(SHORTS, weights, subtractRow + i))
+                    .intoArray(accumulator, offset + i);
+        }
+    }
+
+    @Override
+    int forward(NnueNetwork network, short[] accumulator, int usOffset, int themOffset, short[] input, int[] sums) {
+        System.arraycopy(network.l1Biases, 0, sums, 0, NnueNetwork.L1);
+        addInputs(network, accumulator, usOffset, 0, input, sums);
+        addInputs(network, accumulator, themOffset, NnueNetwork.HIDDEN, input, sums);
+        return output(network, sums);
+    }
+
+    /**
+     * Clips one accumulator half and adds its activations into the L1 sums. Whole vectors
+     * of zero activations, common after the clip, are skipped without looking at the lanes.
+     */
+    private static void addInputs(NnueNetwork network, short[] accumulator, int offset, int firstInput,
+            short[] input, int[] sums) {
+        int[] weights = network.l1Weights;
+        for (int i = 0; i < NnueNetwork.HIDDEN; i += SHORTS.length()) {
+            ShortVector activations = ShortVector.fromArray(SHORTS, accumulator, offset + i)
+                    .max((short) 0).min((short) NnueNetwork.MAX_ACTIVATION);
+            if (!activations.compare(VectorOperators.NE, (short) 0).anyTrue()) {
+                continue;
+            }
+            activations.intoArray(input, 0);
+            for (int lane = 0; lane < SHORTS.length(); lane++) {
+                int activation = input[lane];
+                if (activation == 0) {
+                    continue;
+                }
+                int row = (firstInput + i + lane) * NnueNetwork.L1;
+                for (int j = 0; j < NnueNetwork.L1; j += INTS.length()) {
+                    IntVector.fromArray(INTS, weights, row + j).mul(activation)
+                            .add(IntVector.fromArray(INTS, sums, j))
+                            .intoArray(sums, j);
+                }
+            }
+        }
+    }
+}
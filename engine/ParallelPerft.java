@@ -0,0 +1,157 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft on a ForkJoinPool. The root moves are always split into separate tasks;
+ * deeper subtrees are split further only while the pool is short of queued work,
+ * so the tree is cut into roughly as many pieces as there are idle workers.
+ * Each worker thread owns a Perft (position copy and move buffers) and counts
+ * unsplit subtrees with it, so the inner loops are the same allocation-free code
+ * as the single-threaded harness. An optional PerftHashTable is shared by all
+ * workers and also caches the counts of split subtrees.
+ */
+public class ParallelPerft {
+    // Subtrees at or below this depth are always counted sequentially
+    private static final int SEQUENTIAL_DEPTH = 3;
+    // Keep splitting while a worker has no more than this many surplus queued tasks
+    private static final int SURPLUS_TASKS = 2;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Perft> workers;
+    private final PerftHashTable hashTable; // may be null
+
+    /**
+     * @param threads number of worker threads
+     * @param mode    Perft.MODE_LEGAL or Perft.MODE_PSEUDO (the piece-rule mode shares
+     *                GamePanel's static board and cannot run in parallel)
+     * @param hashTable shared node-count cache, or null
+     */
+    public ParallelPerft(int threads, int mode, PerftHashTable hashTable) {
+        if (mode == Perft.MODE_PIECES) {
+            throw new IllegalArgumentException("The pieces mode can only run single-threaded");
+        }
+        this.hashTable = hashTable;
+        pool = new ForkJoinPool(threads);
+        workers = ThreadLocal.withInitial(() -> new Perft(new BitboardPosition(), mode, hashTable));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public long perft(BitboardPosition root, int depth) {
+        return pool.invoke(new Subtree(new BitboardPosition(root), depth));
+    }
+
+    /**
+     * Counts the subtree below each root move; the result is indexed like moves.
+     */
+    public long[] divide(BitboardPosition root, int depth, int[] moves, int count) {
+        List<Subtree> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BitboardPosition child = new BitboardPosition(root);
+            child.makeMove(moves[i]);
+            tasks.add(new Subtree(child, depth - 1));
+        }
+        long[] nodes = new long[count];
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            nodes[i] = tasks.get(i).join();
+        }
+        return nodes;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private final class Subtree extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final BitboardPosition position;
+        private final int depth;
+
+        Subtree(BitboardPosition position, int depth) {
+            this.position = position;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SEQUENTIAL_DEPTH || getSurplusQueuedTaskCount() > SURPLUS_TASKS) {
+                Perft worker = workers.get();
+                worker.getPosition().copyFrom(position);
+                return worker.perft(depth);
+            }
+
+            if (hashTable != null) {
+                long cached = hashTable.probe(position.getKey(), depth);
+                if (cached >= 0) {
+                    return cached;
+                }
+            }
+
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = MoveGenerator.generateLegal(position, moves, 0);
+            Subtree[] children = new Subtree[count];
+            for (int i = 0; i < count; i++) {
+                BitboardPosition child = new BitboardPosition(position);
+                child.makeMove(moves[i]);
+                children[i] = new Subtree(child, depth - 1);
+            }
+            invokeAll(Arrays.asList(children));
+
+            long nodes = 0;
+            for (Subtree child : children) {
+                nodes += child.join();
+            }
+            if (hashTable != null) {
+                hashTable.store(position.getKey(), depth, nodes);
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Runs parallel perft with divide output and prints the same report as Perft.run.
+     */
+    public static long run(ParallelPerft perft, BitboardPosition position, int depth, boolean divide) {
+        System.out.println("Position: " + position.toFen());
+        System.out.println("Depth:    " + depth);
+        System.out.println("Threads:  " + perft.getParallelism());
+        if (perft.hashTable != null) {
+            System.out.println("Hash:     " + perft.hashTable.sizeInMegabytes() + " MB");
+        }
+
+        Perft.AllocationCounter allocation = new Perft.AllocationCounter(true);
+        long start = System.nanoTime();
+        long total = 0;
+        if (divide) {
+            int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+            int rootCount = MoveGenerator.generateLegal(position, rootMoves, 0);
+            Arrays.sort(rootMoves, 0, rootCount);
+            long[] nodes = perft.divide(position, depth, rootMoves, rootCount);
+            for (int i = 0; i < rootCount; i++) {
+                System.out.println(Move.toUci(rootMoves[i]) + ": " + nodes[i]);
+                total += nodes[i];
+            }
+        } else {
+            total = perft.perft(position, depth);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Perft.report(total, elapsed, allocation.allocatedBytes());
+        return total;
+    }
+}
@@ -0,0 +1,85 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Cache of pawn structure evaluations keyed on BitboardPosition's pawn key. Pawns move
+ * rarely compared with other pieces, so most nodes of a search find their pawn
+ * structure here instead of scoring it again.
+ *
+ * Each entry holds the packed pawn score and the mask of passed pawns of both colours,
+ * which the rest of the evaluation uses for the terms that also depend on other pieces.
+ * Direct-mapped and always replaced. Not thread-safe: every search thread has its own.
+ */
+public class PawnHashTable {
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final long[] passed;
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+    public PawnHashTable() {
+        this(DEFAULT_ENTRIES);
+    }
+
+    /**
+     * @param entries table size; rounded down to a power of two
+     */
+    public PawnHashTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        keys = new long[size];
+        scores = new int[size];
+        passed = new long[size];
+        mask = size - 1;
+        // Key 0 (no pawns at all) would match the empty slots, so mark them with a key no real position is expected to have
+        Arrays.fill(keys, -1L);
+    }
+
+    /**
+     * Returns the slot holding the key, or -1 on a miss.
+     */
+    public int probe(long pawnKey) {
+        probes++;
+        int slot = (int) pawnKey & mask;
+        if (keys[slot] == pawnKey) {
+            hits++;
+            return slot;
+        }
+        return -1;
+    }
+
+    public int score(int slot) { return scores[slot]; }
+    public long passed(int slot) { return passed[slot]; }
+
+    public void store(long pawnKey, int score, long passedPawns) {
+        int slot = (int) pawnKey & mask;
+        keys[slot] = pawnKey;
+        scores[slot] = score;
+        passed[slot] = passedPawns;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, -1L);
+        resetStatistics();
+    }
+
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+
+    public long getProbes() { return probes; }
+    public long getHits() { return hits; }
+
+    public double hitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+}
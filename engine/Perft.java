@@ -0,0 +1,369 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import main.GamePanel;
+import piece.Bishop;
+import piece.King;
+import piece.Knight;
+import piece.Pawn;
+import piece.Piece;
+import piece.Queen;
+import piece.Rook;
+
+/**
+ * Perft (performance test) harness: counts the leaf nodes of the move tree to a
+ * fixed depth. Used both as the move generation throughput benchmark and as the
+ * correctness gate for the move rules.
+ *
+ * Usage: java engine.Perft [--mode legal|pseudo|pieces] [--threads n] [--hash mb] [--no-divide] depth [fen]
+ *
+ * Modes:
+ *   legal  - MoveGenerator.generateLegal with bulk counting at the last ply (default)
+ *   pseudo - pseudo-legal moves, each played and rejected if it leaves the king in check
+ *   pieces - moves found by asking the piece classes' canMove for every square, the way
+ *            GamePanel used to, then filtered like pseudo. The piece classes do not
+ *            implement en passant, so counts differ from the reference where it occurs.
+ *
+ * With --threads above 1 the tree is counted by ParallelPerft. With --hash, subtree
+ * counts are cached in a PerftHashTable shared by all threads.
+ */
+public class Perft {
+    public static final int MODE_LEGAL = 0;
+    public static final int MODE_PSEUDO = 1;
+    public static final int MODE_PIECES = 2;
+
+    private static final int MAX_DEPTH = 64;
+
+    private final BitboardPosition position;
+    private final int mode;
+    private final int[][] moveBuffers = new int[MAX_DEPTH + 1][MoveGenerator.MAX_MOVES];
+    private PieceRules pieceRules;
+    private final PerftHashTable hashTable; // may be null
+
+    public Perft(BitboardPosition position, int mode) {
+        this(position, mode, null);
+    }
+
+    public Perft(BitboardPosition position, int mode, PerftHashTable hashTable) {
+        this.position = position;
+        this.mode = mode;
+        this.hashTable = hashTable;
+        if (mode == MODE_PIECES) {
+            pieceRules = new PieceRules();
+        }
+    }
+
+    public BitboardPosition getPosition() {
+        return position;
+    }
+
+    /**
+     * Counts the leaf nodes at the given depth below the current position.
+     */
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        // Depth 1 is a bulk count, cheaper than a table lookup
+        if (hashTable != null && depth > 1) {
+            long cached = hashTable.probe(position.getKey(), depth);
+            if (cached >= 0) {
+                return cached;
+            }
+            long nodes = search(depth);
+            hashTable.store(position.getKey(), depth, nodes);
+            return nodes;
+        }
+        return search(depth);
+    }
+
+    private long search(int depth) {
+        int[] moves = moveBuffers[depth];
+        if (mode == MODE_LEGAL) {
+            int count = MoveGenerator.generateLegal(position, moves, 0);
+            if (depth == 1) {
+                return count;
+            }
+            long nodes = 0;
+            for (int i = 0; i < count; i++) {
+                position.makeMove(moves[i]);
+                nodes += perft(depth - 1);
+                position.unmakeMove(moves[i]);
+            }
+            return nodes;
+        }
+
+        int us = position.getSideToMove();
+        int count = mode == MODE_PSEUDO
+                ? MoveGenerator.generatePseudoLegal(position, moves, 0)
+                : pieceRules.generate(position, moves);
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            if (!position.isInCheck(us)) {
+                nodes += perft(depth - 1);
+            }
+            position.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Writes the root's legal moves into the buffer and returns how many there are.
+     */
+    public int rootMoves(int[] moves) {
+        return MoveGenerator.generateLegal(position, moves, 0);
+    }
+
+    public static void main(String[] args) {
+        int mode = MODE_LEGAL;
+        int threads = 1;
+        int hashMegabytes = 0;
+        boolean divide = true;
+        int depth = -1;
+        StringBuilder fen = new StringBuilder();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--mode") && i + 1 < args.length) {
+                mode = parseMode(args[++i]);
+            } else if (arg.equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--hash") && i + 1 < args.length) {
+                hashMegabytes = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--no-divide")) {
+                divide = false;
+            } else if (depth < 0) {
+                depth = Integer.parseInt(arg);
+            } else {
+                fen.append(arg).append(' ');
+            }
+        }
+        if (depth < 1 || depth > MAX_DEPTH) {
+            System.err.println("Usage: java engine.Perft [--mode legal|pseudo|pieces] [--threads n] [--hash mb]"
+                    + " [--no-divide] depth [fen]");
+            System.exit(1);
+        }
+
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(fen.length() > 0 ? fen.toString() : BitboardPosition.START_FEN);
+        PerftHashTable hashTable = hashMegabytes > 0 ? new PerftHashTable(hashMegabytes) : null;
+        if (threads > 1) {
+            ParallelPerft parallel = new ParallelPerft(threads, mode, hashTable);
+            ParallelPerft.run(parallel, position, depth, divide);
+            parallel.shutdown();
+        } else {
+            run(new Perft(position, mode, hashTable), depth, divide);
+        }
+    }
+
+    private static int parseMode(String name) {
+        switch (name) {
+            case "legal": return MODE_LEGAL;
+            case "pseudo": return MODE_PSEUDO;
+            case "pieces": return MODE_PIECES;
+            default: throw new IllegalArgumentException("Unknown perft mode: " + name);
+        }
+    }
+
+    /**
+     * Runs perft with divide output and prints node count, speed and allocation figures.
+     */
+    public static long run(Perft perft, int depth, boolean divide) {
+        BitboardPosition position = perft.getPosition();
+        System.out.println("Position: " + position.toFen());
+        System.out.println("Depth:    " + depth);
+
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int rootCount = perft.rootMoves(rootMoves);
+        // Sort so divide output lines up with other engines' listings
+        Arrays.sort(rootMoves, 0, rootCount);
+
+        AllocationCounter allocation = new AllocationCounter(false);
+        long start = System.nanoTime();
+        long total;
+        if (divide) {
+            total = 0;
+            for (int i = 0; i < rootCount; i++) {
+                position.makeMove(rootMoves[i]);
+                long nodes = perft.perft(depth - 1);
+                position.unmakeMove(rootMoves[i]);
+                System.out.println(Move.toUci(rootMoves[i]) + ": " + nodes);
+                total += nodes;
+            }
+        } else {
+            total = perft.perft(depth);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocation.allocatedBytes();
+
+        report(total, elapsed, allocated);
+        return total;
+    }
+
+    static void report(long nodes, long elapsedNanos, long allocatedBytes) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        System.out.println();
+        System.out.println("Nodes:    " + nodes);
+        System.out.printf("Time:     %.3f s%n", seconds);
+        System.out.printf("Speed:    %.0f nodes/s%n", nodes / seconds);
+        if (allocatedBytes >= 0) {
+            System.out.printf("Alloc:    %d bytes (%.3f bytes/node, %.2f MB/s)%n", allocatedBytes,
+                    nodes > 0 ? (double) allocatedBytes / nodes : 0.0, allocatedBytes / seconds / (1024 * 1024));
+        } else {
+            System.out.println("Alloc:    not supported by this JVM");
+        }
+    }
+
+    /**
+     * Measures bytes allocated by the current thread, or by all live threads, where the
+     * JVM supports it. Threads that finish before allocatedBytes() is called are not counted.
+     */
+    static final class AllocationCounter {
+        private final com.sun.management.ThreadMXBean bean;
+        private final boolean allThreads;
+        private final Map<Long, Long> startBytes = new HashMap<>();
+
+        AllocationCounter(boolean allThreads) {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            bean = threads instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) threads : null;
+            this.allThreads = allThreads;
+            if (bean != null) {
+                long[] ids = threadIds();
+                long[] bytes = bean.getThreadAllocatedBytes(ids);
+                for (int i = 0; i < ids.length; i++) {
+                    startBytes.put(ids[i], bytes[i]);
+                }
+            }
+        }
+
+        private long[] threadIds() {
+            return allThreads ? bean.getAllThreadIds() : new long[] {Thread.currentThread().getId()};
+        }
+
+        /**
+         * Bytes allocated since construction, or -1 if unsupported.
+         */
+        long allocatedBytes() {
+            if (bean == null) {
+                return -1;
+            }
+            long[] ids = threadIds();
+            long[] bytes = bean.getThreadAllocatedBytes(ids);
+            long total = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (bytes[i] >= 0) {
+                    total += bytes[i] - startBytes.getOrDefault(ids[i], 0L);
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Generates moves with the piece classes' canMove rules. The pieces read the
+     * board through GamePanel's shared position and piece list, so both are
+     * loaded with the node being searched; Piece objects are pooled because
+     * each one loads its image when constructed.
+     */
+    private static final class PieceRules {
+        // Pools indexed by piece code * 2 + (1 if a pawn has left its start row)
+        private final List<ArrayList<Piece>> pools = new ArrayList<>(24);
+        private final int[] used = new int[24];
+        private final ArrayList<Piece> active = new ArrayList<>();
+
+        PieceRules() {
+            for (int i = 0; i < used.length; i++) {
+                pools.add(new ArrayList<>());
+            }
+        }
+
+        int generate(BitboardPosition pos, int[] moves) {
+            GamePanel.getPosition().copyFrom(pos);
+            ArrayList<Piece> simPieces = GamePanel.getSimPieces();
+            simPieces.clear();
+            active.clear();
+            Arrays.fill(used, 0);
+
+            int us = pos.getSideToMove();
+            long occupied = pos.occupied();
+            while (occupied != 0) {
+                int sq = Long.numberOfTrailingZeros(occupied);
+                occupied &= occupied - 1;
+                Piece p = take(pos.pieceAt(sq), sq);
+                simPieces.add(p);
+                if (p.getColor() == us) {
+                    active.add(p);
+                }
+            }
+
+            int n = 0;
+            for (Piece p : active) {
+                int from = BitboardPosition.square(p.getCol(), p.getRow());
+                boolean pawn = p instanceof Pawn;
+                for (int to = 0; to < 64; to++) {
+                    int col = BitboardPosition.colOf(to);
+                    int row = BitboardPosition.rowOf(to);
+                    if (!p.canMove(col, row)) {
+                        continue;
+                    }
+                    boolean capture = pos.isOccupied(to);
+                    if (pawn && (row == 0 || row == 7)) {
+                        for (int type = BitboardPosition.KNIGHT; type <= BitboardPosition.QUEEN; type++) {
+                            moves[n++] = Move.createPromotion(from, to, type, capture);
+                        }
+                    } else if (p instanceof King && Math.abs(col - p.getCol()) == 2) {
+                        moves[n++] = Move.create(from, to, col > p.getCol() ? Move.KING_CASTLE : Move.QUEEN_CASTLE);
+                    } else if (pawn && Math.abs(row - p.getRow()) == 2) {
+                        moves[n++] = Move.create(from, to, Move.DOUBLE_PUSH);
+                    } else {
+                        moves[n++] = Move.create(from, to, capture ? Move.CAPTURE : Move.QUIET);
+                    }
+                }
+            }
+            return n;
+        }
+
+        private Piece take(int code, int sq) {
+            int color = BitboardPosition.colorOfCode(code);
+            int type = BitboardPosition.typeOfCode(code);
+            int row = BitboardPosition.rowOf(sq);
+            int col = BitboardPosition.colOf(sq);
+            boolean moved = type == BitboardPosition.PAWN && row != (color == BitboardPosition.WHITE ? 6 : 1);
+            int slot = code * 2 + (moved ? 1 : 0);
+
+            ArrayList<Piece> pool = pools.get(slot);
+            if (used[slot] == pool.size()) {
+                Piece created = create(color, type, col, row);
+                if (moved) {
+                    created.updatePosition(); // marks the pawn as moved
+                }
+                pool.add(created);
+            }
+            Piece p = pool.get(used[slot]++);
+            p.setCol(col);
+            p.setRow(row);
+            p.setPreCol(col);
+            p.setPreRow(row);
+            return p;
+        }
+
+        private static Piece create(int color, int type, int col, int row) {
+            switch (type) {
+                case BitboardPosition.PAWN: return new Pawn(color, col, row);
+                case BitboardPosition.KNIGHT: return new Knight(color, col, row);
+                case BitboardPosition.BISHOP: return new Bishop(color, col, row);
+                case BitboardPosition.ROOK: return new Rook(color, col, row);
+                case BitboardPosition.QUEEN: return new Queen(color, col, row);
+                default: return new King(color, col, row);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package engine;
+
+/**
+ * Lossy node-count cache for perft, keyed on Zobrist key and depth.
+ * Entries live in a plain long[] as two words: (check, data) where
+ * data = nodes << 8 | depth and check = key ^ data. A reader only accepts an
+ * entry whose words XOR back to its key, so writes from other threads that
+ * interleave with a read (torn entries) are simply treated as misses. This
+ * lets every parallel perft worker share the table without locks.
+ */
+public class PerftHashTable {
+    private final long[] table;
+    private final long mask; // entry index mask
+
+    /**
+     * @param megabytes table size; rounded down to a power-of-two number of entries
+     */
+    public PerftHashTable(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / 16));
+        entries = Math.min(entries, 1L << 29); // keep the long[] index in int range
+        table = new long[(int) entries * 2];
+        mask = entries - 1;
+    }
+
+    private int index(long key, int depth) {
+        // Mix the depth in so one position's counts at different depths use different slots
+        long h = key ^ (depth * 0x9E3779B97F4A7C15L);
+        return (int) (h & mask) << 1;
+    }
+
+    /**
+     * Returns the stored node count for the position and depth, or -1 on a miss.
+     */
+    public long probe(long key, int depth) {
+        int i = index(key, depth);
+        long check = table[i];
+        long data = table[i + 1];
+        if ((check ^ data) == key && (data & 0xFF) == depth) {
+            return data >>> 8;
+        }
+        return -1;
+    }
+
+    public void store(long key, int depth, long nodes) {
+        int i = index(key, depth);
+        long data = (nodes << 8) | depth;
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    public int sizeInMegabytes() {
+        return (int) ((long) table.length * 8 / (1024 * 1024));
+    }
+}
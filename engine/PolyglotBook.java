@@ -0,0 +1,197 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Polyglot opening book (.bin). The file is a sorted array of 16-byte big-endian entries
+ * (key, move, weight, learn), so it is memory-mapped and binary-searched in place: opening
+ * a book of any size reads nothing, and a lookup touches only the pages on its search
+ * path. Files over 2 GB are mapped in several segments.
+ *
+ * A book move packs to file 0-2, to row 3-5, from file 6-8, from row 9-11 (rows counted
+ * from rank 1) and promotion piece 12-14 (knight 1 to queen 4, as our types); castling
+ * is written as the king taking its own rook. Moves are matched against the legal moves
+ * of the position, so a corrupt or colliding entry is ignored rather than played.
+ *
+ * Usage: java engine.PolyglotBook book.bin [fen]
+ * prints the book moves of the position (the start position by default) with their weights.
+ */
+public final class PolyglotBook {
+    public static final int MAX_ENTRIES = 64; // book moves returned for one position at most
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int SEGMENT_SHIFT = 30; // 1 GB segments, a whole number of entries
+
+    private final MappedByteBuffer[] segments;
+    private final long entryCount;
+    private final PolyglotKeys keys;
+
+    private PolyglotBook(MappedByteBuffer[] segments, long entryCount, PolyglotKeys keys) {
+        this.segments = segments;
+        this.entryCount = entryCount;
+        this.keys = keys;
+    }
+
+    /**
+     * Opens a book with the standard Polyglot keys (see PolyglotKeys.standard()).
+     */
+    public static PolyglotBook open(Path path) throws IOException {
+        return open(path, PolyglotKeys.standard());
+    }
+
+    public static PolyglotBook open(Path path, PolyglotKeys keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0) {
+                throw new IOException("Not a Polyglot book (size is not a multiple of 16): " + path);
+            }
+            // The mappings stay valid after the channel is closed
+            long segmentSize = 1L << SEGMENT_SHIFT;
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long offset = i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(segmentSize, size - offset));
+            }
+            return new PolyglotBook(segments, size / ENTRY_BYTES, keys);
+        }
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public PolyglotKeys getKeys() {
+        return keys;
+    }
+
+    private long keyAt(long entry) {
+        long offset = entry * ENTRY_BYTES;
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+
+    // The move and weight halves of the second word, as move << 16 | weight
+    private int moveAndWeightAt(long entry) {
+        long offset = entry * ENTRY_BYTES + 8;
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+
+    /**
+     * Finds the legal book moves of the position. Fills moves and weights (each at least
+     * MAX_ENTRIES long), highest weight first, and returns how many there are.
+     */
+    public int probe(BitboardPosition position, int[] moves, int[] weights) {
+        long key = keys.key(position);
+        // First entry whose key is not below the position's; keys are unsigned
+        long low = 0;
+        long high = entryCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int legalCount = MoveGenerator.generateLegal(position, legal, 0);
+        int count = 0;
+        for (long entry = low; entry < entryCount && keyAt(entry) == key && count < MAX_ENTRIES; entry++) {
+            int data = moveAndWeightAt(entry);
+            int move = toMove(data >>> 16, legal, legalCount);
+            int weight = data & 0xFFFF;
+            if (move == Move.NONE) {
+                continue;
+            }
+            // Insertion by weight; books are usually sorted already
+            int i = count++;
+            while (i > 0 && weights[i - 1] < weight) {
+                moves[i] = moves[i - 1];
+                weights[i] = weights[i - 1];
+                i--;
+            }
+            moves[i] = move;
+            weights[i] = weight;
+        }
+        return count;
+    }
+
+    /**
+     * Picks a book move at random in proportion to the weights, or Move.NONE when the
+     * position is not in the book.
+     */
+    public int pickMove(BitboardPosition position, Random random) {
+        int[] moves = new int[MAX_ENTRIES];
+        int[] weights = new int[MAX_ENTRIES];
+        int count = probe(position, moves, weights);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        if (total == 0) {
+            return count > 0 ? moves[0] : Move.NONE;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < count; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return moves[i];
+            }
+        }
+        return moves[0];
+    }
+
+    /**
+     * Maps a Polyglot move onto the matching legal move, or Move.NONE.
+     */
+    private static int toMove(int bookMove, int[] legal, int legalCount) {
+        int to = BitboardPosition.square(bookMove & 7, 7 - ((bookMove >>> 3) & 7));
+        int from = BitboardPosition.square((bookMove >>> 6) & 7, 7 - ((bookMove >>> 9) & 7));
+        int promotion = (bookMove >>> 12) & 7;
+        for (int i = 0; i < legalCount; i++) {
+            int move = legal[i];
+            if (Move.from(move) != from) {
+                continue;
+            }
+            int target = Move.to(move);
+            // Castling: Polyglot names the rook's square as the target
+            if (Move.flags(move) == Move.KING_CASTLE) {
+                target += 1;
+            } else if (Move.flags(move) == Move.QUEEN_CASTLE) {
+                target -= 2;
+            }
+            if (target == to && (Move.isPromotion(move) ? Move.promotionType(move) : 0) == promotion) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java engine.PolyglotBook book.bin [fen]");
+            System.exit(1);
+        }
+        PolyglotBook book = open(Path.of(args[0]));
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length))
+                : BitboardPosition.START_FEN);
+        System.out.printf("Book:     %s, %d entries%n", args[0], book.getEntryCount());
+        System.out.printf("Key:      %016x%n", book.getKeys().key(position));
+        int[] moves = new int[MAX_ENTRIES];
+        int[] weights = new int[MAX_ENTRIES];
+        int count = book.probe(position, moves, weights);
+        for (int i = 0; i < count; i++) {
+            System.out.printf("%-6s %d%n", Move.toUci(moves[i]), weights[i]);
+        }
+        if (count == 0) {
+            System.out.println("Not in book");
+        }
+    }
+}
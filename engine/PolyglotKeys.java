@@ -0,0 +1,112 @@
+package engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Polyglot position keys. Polyglot books are indexed by a Zobrist key built from the
+ * 781 fixed "Random64" numbers of the Polyglot format, which differ from Zobrist's.
+ *
+ * The table ships as the resource engine/polyglot-random64.txt; -Dchess.polyglot.random
+ * names a file to read instead. Either is text holding the 781 numbers as 0x-prefixed
+ * hex in format order (the C array from the Polyglot book format description can be
+ * pasted as is). A table is only accepted if it gives the start position its
+ * well-known key, 0x463B96181691FC9C.
+ *
+ * Key layout: 64 * kind + square for every piece, kind being 2 * type plus 1 for White
+ * and square counted from a1 (our square ^ 56); 768 + i for castling right i (White
+ * short, White long, Black short, Black long); 772 + file for an en-passant square a
+ * pawn of the side to move can capture on; 780 when White is to move.
+ */
+public final class PolyglotKeys {
+    public static final int SIZE = 781;
+    public static final long START_POSITION_KEY = 0x463B96181691FC9CL;
+
+    private static final String RESOURCE = "/engine/polyglot-random64.txt";
+    private static final Pattern HEX = Pattern.compile("0[xX]([0-9A-Fa-f]{1,16})");
+    private static final int CASTLING = 768;
+    private static final int EN_PASSANT = 772;
+    private static final int TURN = 780;
+
+    private final long[] random;
+
+    // Unchecked, for tables other than the standard one
+    PolyglotKeys(long[] random) {
+        if (random.length != SIZE) {
+            throw new IllegalArgumentException("Expected " + SIZE + " numbers, got " + random.length);
+        }
+        this.random = random.clone();
+    }
+
+    /**
+     * The standard table: the bundled resource, or the file named by -Dchess.polyglot.random.
+     */
+    public static PolyglotKeys standard() throws IOException {
+        String file = System.getProperty("chess.polyglot.random");
+        if (file != null) {
+            return parse(Files.readString(Path.of(file), StandardCharsets.US_ASCII), file);
+        }
+        try (InputStream in = PolyglotKeys.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IOException("No Polyglot Random64 table: set -Dchess.polyglot.random=<file>"
+                        + " or add the resource " + RESOURCE);
+            }
+            return parse(new String(in.readAllBytes(), StandardCharsets.US_ASCII), RESOURCE);
+        }
+    }
+
+    private static PolyglotKeys parse(String text, String source) throws IOException {
+        long[] random = new long[SIZE];
+        int count = 0;
+        Matcher matcher = HEX.matcher(text);
+        while (matcher.find()) {
+            if (count == SIZE) {
+                throw new IOException("More than " + SIZE + " numbers in " + source);
+            }
+            random[count++] = Long.parseUnsignedLong(matcher.group(1), 16);
+        }
+        if (count != SIZE) {
+            throw new IOException("Expected " + SIZE + " numbers in " + source + ", found " + count);
+        }
+        PolyglotKeys keys = new PolyglotKeys(random);
+        BitboardPosition start = new BitboardPosition();
+        start.setFromFen(BitboardPosition.START_FEN);
+        if (keys.key(start) != START_POSITION_KEY) {
+            throw new IOException("Not the Polyglot Random64 table (wrong start position key): " + source);
+        }
+        return keys;
+    }
+
+    public long key(BitboardPosition position) {
+        long key = 0;
+        long pieces = position.occupied();
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            // Our codes are (type << 1) | color with White 0; Polyglot's kind has White 1
+            int kind = position.pieceAt(sq) ^ 1;
+            key ^= random[64 * kind + (sq ^ 56)];
+        }
+        int rights = position.getCastlingRights();
+        for (int i = 0; i < 4; i++) {
+            if ((rights & (1 << i)) != 0) {
+                key ^= random[CASTLING + i];
+            }
+        }
+        int ep = position.getEpSquare();
+        int us = position.getSideToMove();
+        if (ep != BitboardPosition.NO_SQUARE
+                && (Attacks.pawnAttacks(1 - us, ep) & position.pieces(us, BitboardPosition.PAWN)) != 0) {
+            key ^= random[EN_PASSANT + BitboardPosition.colOf(ep)];
+        }
+        if (us == BitboardPosition.WHITE) {
+            key ^= random[TURN];
+        }
+        return key;
+    }
+}
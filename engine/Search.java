@@ -0,0 +1,760 @@
+package engine;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Negamax alpha-beta search with iterative deepening and aspiration windows.
+ *
+ * Each iteration searches the root one ply deeper, starting from a narrow window
+ * around the previous score and widening it when the result falls outside. The
+ * principal variation of the last iteration is tried first at every ply, then the move
+ * remembered by the transposition table; table scores cut off non-PV nodes. Other moves
+ * follow in this order: captures that do not lose material (most valuable victim, least
+ * valuable attacker first), queen promotions, the two killer moves of the ply, the
+ * countermove to the opponent's last move, quiet moves by history score, and last the
+ * losing captures and underpromotions. At the horizon a quiescence search plays out
+ * captures and promotions until the position is quiet. The search
+ * stops between iterations once the soft time limit has passed, and mid-iteration at
+ * the hard limit, node limit or stop(); the last completed iteration is returned.
+ *
+ * MultiPV: with setMultiPv(k) each iteration searches k lines, the best root move, then
+ * the best of the others, and so on, each with its own aspiration window and its own
+ * principal variation to follow next time. A SearchListener receives every completed
+ * iteration, all of its lines, while the search runs.
+ *
+ * Not thread safe: one Search per thread, each on its own BitboardPosition. Several
+ * searches may share one TranspositionTable; see Engine for the Lazy SMP setup, where
+ * helper searches (helperId above 0) visit the depths in a staggered order and start
+ * from a rotated root move list so that they fill the table with different subtrees.
+ */
+public final class Search {
+    public static final int INFINITY = 32000;
+    /** Score of mate at the root; mate in n plies scores MATE - n. */
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 100;
+    /** Most lines a MultiPV search reports. */
+    public static final int MAX_MULTI_PV = 16;
+
+    private static final int ASPIRATION_WINDOW = 25;
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+    private static final int LIMIT_CHECK_MASK = 2047; // check the clock every 2048 nodes
+
+    // Lazy SMP depth skipping: helper n skips depth d when ((d + SKIP_PHASE[i]) / SKIP_SIZE[i]) is odd,
+    // i = (n - 1) % 20
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    // Move ordering scores; quiet moves score their history value in (-MAX_HISTORY, MAX_HISTORY)
+    private static final int HASH_MOVE_SCORE = 1_000_000;
+    private static final int GOOD_CAPTURE_SCORE = 500_000;
+    private static final int PROMOTION_SCORE = 400_000;
+    private static final int KILLER_SCORE = 300_000;
+    private static final int COUNTER_MOVE_SCORE = 299_000;
+    private static final int BAD_CAPTURE_SCORE = -500_000;
+    private static final int MAX_HISTORY = 16384;
+    // Quiescence: a capture must be able to lift the score to within this of alpha
+    private static final int DELTA_MARGIN = 200;
+
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final BitboardPosition position;
+    private final TranspositionTable table;
+    private final PawnHashTable pawnTable = new PawnHashTable();
+    private Tablebase tablebase; // null when not probing
+    private long tablebaseHits;
+    // Transposition table counts of this thread, added to the table's when run() returns
+    private long tableProbes;
+    private long tableHits;
+    private long tableStores;
+    private long tableCollisions;
+    private final int helperId;
+    private Search[] helpers = new Search[0];
+    private final int[][] moveLists = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+    private int rootCount;
+
+    // Move ordering state, kept across searches; history is aged rather than cleared
+    private final int[][] moveScores = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] quietsTried = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[] killers = new int[(MAX_PLY + 1) * 2];
+    private final int[] history = new int[2 * 64 * 64];  // [side][from][to]
+    private final int[] counterMoves = new int[12 * 64]; // [piece code][to] of the previous move
+    private final int[] playedMoves = new int[MAX_PLY + 1];
+
+    // Triangular PV table: pvTable[ply] holds the line from ply onwards
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private int[] previousPv;
+    private int previousPvLength;
+    private boolean followPv;
+
+    // MultiPV: score and principal variation of each line in the last iteration
+    private int multiPv = 1;
+    private final int[] lineScores = new int[MAX_MULTI_PV];
+    private final int[][] linePvs = new int[MAX_MULTI_PV][MAX_PLY + 1];
+    private final int[] linePvLengths = new int[MAX_MULTI_PV];
+    private SearchListener listener;
+
+    private final long[] timeToDepth = new long[MAX_PLY + 1];
+    private final long[] nodesToDepth = new long[MAX_PLY + 1];
+
+    private long nodes;
+    private long startNanos;
+    private long hardDeadline;
+    private long nodeLimit;
+    private int completedDepth;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+    private PrintStream info;
+
+    public Search(BitboardPosition position, TranspositionTable table) {
+        this(position, table, 0);
+    }
+
+    Search(BitboardPosition position, TranspositionTable table, int helperId) {
+        this.position = position;
+        this.table = table;
+        this.helperId = helperId;
+    }
+
+    /**
+     * Helper searches running alongside this one; their nodes count towards the node
+     * limit and the reported totals.
+     */
+    void setHelpers(Search[] helpers) {
+        this.helpers = helpers;
+    }
+
+    public BitboardPosition getPosition() {
+        return position;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /** This thread's pawn structure cache. */
+    public PawnHashTable getPawnTable() {
+        return pawnTable;
+    }
+
+    /**
+     * Scores positions of the tablebase exactly, from their distance to mate, instead of
+     * searching them; null turns probing off.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /** Positions of the current or last search answered by the tablebase. */
+    public long getTablebaseHits() {
+        return tablebaseHits;
+    }
+
+    /**
+     * Where to print an info line after each iteration, or null for none.
+     */
+    public void setInfoStream(PrintStream info) {
+        this.info = info;
+    }
+
+    /**
+     * Number of best root moves each iteration searches and reports, 1 to MAX_MULTI_PV.
+     * The result's move is still the best line's; more lines cost search depth.
+     */
+    public void setMultiPv(int multiPv) {
+        if (multiPv < 1 || multiPv > MAX_MULTI_PV) {
+            throw new IllegalArgumentException("MultiPV must be between 1 and " + MAX_MULTI_PV + ": " + multiPv);
+        }
+        this.multiPv = multiPv;
+    }
+
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    /**
+     * Receives each completed iteration on the searching thread, or null for none.
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Asks a running search to return as soon as possible. Safe to call from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /** Nodes searched by this thread in the current or last search. */
+    public long getNodes() { return nodes; }
+
+    /** Nodes searched by this thread and its helpers. */
+    public long getTotalNodes() {
+        long total = nodes;
+        for (Search helper : helpers) {
+            total += helper.nodes;
+        }
+        return total;
+    }
+
+    /**
+     * Clears a previous stop() ahead of run(). Engine calls it on its own thread before
+     * handing a helper to a worker, so a stop() issued before the worker starts is not lost.
+     */
+    void clearStop() {
+        stopRequested = false;
+    }
+    public int getCompletedDepth() { return completedDepth; }
+
+    /**
+     * Time from the start of the last search until the given depth completed, or -1.
+     */
+    public long getTimeToDepthNanos(int depth) {
+        return depth >= 1 && depth <= completedDepth ? timeToDepth[depth] : -1;
+    }
+
+    /**
+     * Effective branching factor of the given iteration: its node count over the previous
+     * iteration's, or -1 when unknown.
+     */
+    public double getBranchingFactor(int depth) {
+        if (depth < 2 || depth > completedDepth) {
+            return -1;
+        }
+        long previous = nodesToDepth[depth - 1] - (depth > 2 ? nodesToDepth[depth - 2] : 0);
+        long current = nodesToDepth[depth] - nodesToDepth[depth - 1];
+        return previous > 0 ? (double) current / previous : -1;
+    }
+
+    /**
+     * Nodes searched from the start of the last search until the given depth completed, or -1.
+     */
+    public long getNodesToDepth(int depth) {
+        return depth >= 1 && depth <= completedDepth ? nodesToDepth[depth] : -1;
+    }
+
+    /**
+     * Searches the current position within the limits and returns the deepest completed iteration.
+     * The position is left as it was. Starts a new table generation; Engine, which runs
+     * several searches per move on one table, does that itself and calls run().
+     */
+    public SearchResult search(SearchLimits limits) {
+        clearStop();
+        table.newSearch();
+        return run(limits);
+    }
+
+    SearchResult run(SearchLimits limits) {
+        startNanos = System.nanoTime();
+        aborted = false;
+        nodes = 0;
+        tablebaseHits = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        tableStores = 0;
+        tableCollisions = 0;
+        pawnTable.resetStatistics();
+        completedDepth = 0;
+        Arrays.fill(linePvLengths, 0);
+        nodeLimit = limits.getNodes();
+        long softMillis = limits.softTimeMillis();
+        long hardMillis = limits.hardTimeMillis();
+        hardDeadline = hardMillis > 0 ? startNanos + hardMillis * 1_000_000 : 0;
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY) : MAX_PLY;
+
+        Arrays.fill(killers, Move.NONE);
+        for (int i = 0; i < history.length; i++) {
+            history[i] /= 8;
+        }
+        rootCount = MoveGenerator.generateLegal(position, rootMoves, 0);
+        if (rootCount == 0) {
+            int score = position.isInCheck(position.getSideToMove()) ? -MATE : 0;
+            return new SearchResult(0, score, new int[0], 0, System.nanoTime() - startNanos);
+        }
+        if (helperId > 0) {
+            // Start each helper on a different root move
+            rotate(rootMoves, rootCount, helperId % rootCount);
+        }
+
+        // Should even depth 1 be cut short, play something legal
+        SearchResult result = new SearchResult(0, 0, new int[] {rootMoves[0]}, 0, 0);
+        int lines = Math.min(multiPv, rootCount);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (skipsDepth(depth)) {
+                continue;
+            }
+            for (int line = 0; line < lines && !aborted; line++) {
+                previousPv = linePvs[line];
+                previousPvLength = linePvLengths[line];
+                int score = aspirationSearch(depth, line, lineScores[line]);
+                if (!aborted) {
+                    lineScores[line] = score;
+                    linePvLengths[line] = pvLength[0];
+                    System.arraycopy(pvTable[0], 0, linePvs[line], 0, pvLength[0]);
+                }
+            }
+            if (aborted) {
+                break;
+            }
+
+            long elapsed = System.nanoTime() - startNanos;
+            completedDepth = depth;
+            timeToDepth[depth] = elapsed;
+            nodesToDepth[depth] = getTotalNodes();
+            SearchResult[] results = new SearchResult[lines];
+            for (int line = 0; line < lines; line++) {
+                results[line] = new SearchResult(depth, lineScores[line], Arrays.copyOf(linePvs[line], linePvLengths[line]),
+                        nodesToDepth[depth], elapsed);
+                if (info != null) {
+                    info.println(lines == 1 ? results[line].toString() : results[line].toString(line + 1));
+                }
+            }
+            result = results[0];
+            if (listener != null) {
+                listener.iterationCompleted(results);
+            }
+
+            // A forced mate found within the full-width depth will not change
+            if (lines == 1 && result.isMateScore() && MATE - Math.abs(result.getScore()) <= depth) {
+                break;
+            }
+            if ((softMillis > 0 && elapsed >= softMillis * 1_000_000)
+                    || (nodeLimit > 0 && getTotalNodes() >= nodeLimit) || stopRequested) {
+                break;
+            }
+        }
+        table.addStatistics(tableProbes, tableHits, tableStores, tableCollisions);
+        return result;
+    }
+
+    /**
+     * Searches the root moves from index first on to the given depth, starting from a narrow window
+     * around the line's last score and widening it until the result falls inside.
+     */
+    private int aspirationSearch(int depth, int first, int score) {
+        int delta = ASPIRATION_WINDOW;
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        if (depth >= ASPIRATION_MIN_DEPTH) {
+            alpha = Math.max(score - delta, -INFINITY);
+            beta = Math.min(score + delta, INFINITY);
+        }
+        while (true) {
+            int value = searchRoot(depth, first, alpha, beta);
+            if (aborted) {
+                return 0;
+            }
+            if (value <= alpha) {
+                alpha = Math.max(value - delta, -INFINITY);
+            } else if (value >= beta) {
+                beta = Math.min(value + delta, INFINITY);
+            } else {
+                return value;
+            }
+            delta *= 2;
+        }
+    }
+
+    // Only the root moves from index first on: the ones before are the better MultiPV lines
+    private int searchRoot(int depth, int first, int alpha, int beta) {
+        pvLength[0] = 0;
+        int bestScore = -INFINITY;
+        for (int i = first; i < rootCount; i++) {
+            int move = rootMoves[i];
+            // A line's best move may have gone to a better line since its last iteration
+            followPv = previousPvLength > 0 && move == previousPv[0];
+            playedMoves[0] = move;
+            position.makeMove(move);
+            nodes++;
+            int score;
+            if (i == first) {
+                score = -negamax(depth - 1, 1, -beta, -alpha);
+            } else {
+                // Principal variation search: prove the move worse with a null window first
+                score = -negamax(depth - 1, 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, 1, -beta, -alpha);
+                }
+            }
+            position.unmakeMove(move);
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(0, move);
+                    // Keep the best move first for the next line and iteration
+                    System.arraycopy(rootMoves, first, rootMoves, first + 1, i - first);
+                    rootMoves[first] = move;
+                    if (score >= beta) {
+                        return score;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if ((nodes & LIMIT_CHECK_MASK) == 0) {
+            checkLimits();
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (position.getHalfmoveClock() >= 100 || position.isRepetition()) {
+            return 0;
+        }
+        if (tablebase != null && Long.bitCount(position.occupied()) <= Tablebase.MAX_PIECES) {
+            int score = tablebase.probe(position);
+            if (score != Tablebase.UNKNOWN) {
+                tablebaseHits++;
+                // Distances count from this node; mate scores count from the root
+                return score > 0 ? score - ply : score < 0 ? score + ply : 0;
+            }
+        }
+
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if (inCheck) {
+            depth++; // never stand still in check at the horizon
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiescence(ply, alpha, beta);
+        }
+
+        long key = position.getKey();
+        long entry = table.probe(key);
+        tableProbes++;
+        int ttMove = Move.NONE;
+        if (entry != 0) {
+            tableHits++;
+            ttMove = TranspositionTable.move(entry);
+            // Only zero-window nodes take cutoffs, so the PV always comes from a real search
+            if (beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+                int ttScore = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.UPPER && ttScore <= alpha)) {
+                    return ttScore;
+                }
+            }
+        }
+
+        int[] moves = moveLists[ply];
+        int count = MoveGenerator.generateLegal(position, moves, 0);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        boolean onPv = followPv && ply < previousPvLength;
+        int[] scores = moveScores[ply];
+        scoreMoves(moves, scores, count, ply, onPv ? previousPv[ply] : ttMove);
+
+        int alphaOrig = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int quietCount = 0;
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(moves, scores, i, count);
+            followPv = onPv && move == previousPv[ply];
+            playedMoves[ply] = move;
+            position.makeMove(move);
+            nodes++;
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            position.unmakeMove(move);
+            if (aborted) {
+                return 0;
+            }
+
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (quiet) {
+                            updateQuietStatistics(move, ply, depth, quietCount);
+                        }
+                        break;
+                    }
+                }
+            }
+            if (quiet) {
+                quietsTried[ply][quietCount++] = move;
+            }
+        }
+        followPv = false;
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        tableStores++;
+        if (table.store(key, bound == TranspositionTable.UPPER ? Move.NONE : bestMove,
+                scoreToTable(bestScore, ply), 0, depth, bound)) {
+            tableCollisions++;
+        }
+        return bestScore;
+    }
+
+    /**
+     * Static evaluation for the side to move: the network when the board carries an
+     * accumulator, the hand-written evaluation otherwise.
+     */
+    private int evaluate() {
+        NnueAccumulator accumulator = position.getAccumulator();
+        return accumulator != null ? accumulator.evaluate(position.getSideToMove())
+                : Evaluation.evaluate(position, pawnTable);
+    }
+
+    /**
+     * Searches only captures and promotions (all evasions when in check) so that the
+     * static evaluation is only ever taken in a quiet position. The side to move may
+     * "stand pat" on the evaluation instead of capturing. Captures that SEE shows losing,
+     * and captures that could not bring the score back to alpha even with a margin
+     * (delta pruning), are skipped.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if ((nodes & LIMIT_CHECK_MASK) == 0) {
+            checkLimits();
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluate();
+        }
+
+        int side = position.getSideToMove();
+        boolean inCheck = position.isInCheck(side);
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        int count;
+        int standPat = 0;
+        int bestScore;
+        if (inCheck) {
+            // No standing pat when in check: every evasion is tried
+            count = MoveGenerator.generateLegal(position, moves, 0);
+            if (count == 0) {
+                return -MATE + ply;
+            }
+            bestScore = -INFINITY;
+        } else {
+            standPat = evaluate();
+            if (standPat >= beta) {
+                return standPat;
+            }
+            // Not even winning a queen would get back to alpha
+            if (standPat + See.value(BitboardPosition.QUEEN) + DELTA_MARGIN < alpha) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            bestScore = standPat;
+            // Pseudo-legal: straight from the attack bitboards, legality is checked after the move
+            count = MoveGenerator.generateCaptures(position, moves, 0);
+        }
+        scoreMoves(moves, scores, count, ply, Move.NONE);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(moves, scores, i, count);
+            if (!inCheck) {
+                // Losing captures and underpromotions score below zero; the rest are ordered best first
+                if (scores[i] < 0) {
+                    break;
+                }
+                if (!Move.isPromotion(move) && standPat + See.capturedValue(position, move) + DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+            }
+            playedMoves[ply] = move;
+            position.makeMove(move);
+            if (!inCheck && position.isInCheck(side)) {
+                position.unmakeMove(move);
+                continue;
+            }
+            nodes++;
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove(move);
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    // Mate scores are stored relative to the node, not the root, so they stay right at any ply
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Gives each move its ordering score (see the class comment).
+     */
+    private void scoreMoves(int[] moves, int[] scores, int count, int ply, int hashMove) {
+        int side = position.getSideToMove();
+        int killer1 = killers[ply * 2];
+        int killer2 = killers[ply * 2 + 1];
+        int counterMove = Move.NONE;
+        if (ply > 0 && playedMoves[ply - 1] != Move.NONE) {
+            int previousTo = Move.to(playedMoves[ply - 1]);
+            counterMove = counterMoves[position.pieceAt(previousTo) * 64 + previousTo];
+        }
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (Move.isPromotion(move) && Move.promotionType(move) != BitboardPosition.QUEEN) {
+                // Before the capture test, so capturing underpromotions sort last too
+                score = BAD_CAPTURE_SCORE;
+            } else if (Move.isCapture(move)) {
+                int victim = Move.isEnPassant(move) ? BitboardPosition.PAWN
+                        : BitboardPosition.typeOfCode(position.pieceAt(Move.to(move)));
+                int attacker = BitboardPosition.typeOfCode(position.pieceAt(Move.from(move)));
+                int mvvLva = victim * 8 + (BitboardPosition.KING - attacker);
+                // Only a capture by a more valuable piece can lose material
+                boolean good = See.value(attacker) <= See.value(victim) || See.isAtLeast(position, move, 0);
+                score = (good ? GOOD_CAPTURE_SCORE : BAD_CAPTURE_SCORE) + mvvLva;
+            } else if (Move.isPromotion(move)) {
+                score = PROMOTION_SCORE;
+            } else if (move == killer1) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killer2) {
+                score = KILLER_SCORE;
+            } else if (move == counterMove) {
+                score = COUNTER_MOVE_SCORE;
+            } else {
+                score = history[historyIndex(side, move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Selection step: swaps the best-scored move of moves[index..count) to index and returns it.
+     * Cheaper than a full sort because most nodes cut off after a few moves.
+     */
+    private static int pickMove(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        int score = scores[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        moves[index] = move;
+        scores[index] = score;
+        return move;
+    }
+
+    /**
+     * A quiet move caused a beta cutoff: make it a killer and the countermove, reward its
+     * history and penalise the quiet moves searched before it.
+     */
+    private void updateQuietStatistics(int move, int ply, int depth, int quietCount) {
+        if (killers[ply * 2] != move) {
+            killers[ply * 2 + 1] = killers[ply * 2];
+            killers[ply * 2] = move;
+        }
+        if (ply > 0 && playedMoves[ply - 1] != Move.NONE) {
+            int previousTo = Move.to(playedMoves[ply - 1]);
+            counterMoves[position.pieceAt(previousTo) * 64 + previousTo] = move;
+        }
+        int side = position.getSideToMove();
+        int bonus = Math.min(depth * depth, 400);
+        addHistory(historyIndex(side, move), bonus);
+        int[] tried = quietsTried[ply];
+        for (int i = 0; i < quietCount; i++) {
+            addHistory(historyIndex(side, tried[i]), -bonus);
+        }
+    }
+
+    // Moves the entry towards +-MAX_HISTORY, slower the closer it already is
+    private void addHistory(int index, int bonus) {
+        history[index] += bonus - history[index] * Math.abs(bonus) / MAX_HISTORY;
+    }
+
+    private static int historyIndex(int side, int move) {
+        return (side << 12) | (move & 0xFFF);
+    }
+
+    private boolean skipsDepth(int depth) {
+        if (helperId == 0 || depth == 1) {
+            return false;
+        }
+        int i = (helperId - 1) % SKIP_SIZE.length;
+        return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+    }
+
+    private static void rotate(int[] moves, int count, int by) {
+        for (int r = 0; r < by; r++) {
+            int first = moves[0];
+            System.arraycopy(moves, 1, moves, 0, count - 1);
+            moves[count - 1] = first;
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        int[] line = pvTable[ply];
+        line[ply] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, line, ply + 1, childLength - ply - 1);
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    private void checkLimits() {
+        if (completedDepth == 0) {
+            return; // always finish depth 1 so there is a move to play
+        }
+        if (stopRequested
+                || (hardDeadline != 0 && System.nanoTime() - hardDeadline >= 0)
+                || (nodeLimit > 0 && getTotalNodes() >= nodeLimit)) {
+            aborted = true;
+        }
+    }
+}
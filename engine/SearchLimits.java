@@ -0,0 +1,78 @@
+package engine;
+
+/**
+ * How long a search may run: a fixed time per move, a share of the remaining clock,
+ * a fixed depth or a node count. Limits that are zero are not used; a search with no
+ * limit at all runs until stopped or until Search.MAX_PLY.
+ */
+public final class SearchLimits {
+    private long moveTimeMillis;
+    private long remainingMillis;
+    private long incrementMillis;
+    private int depth;
+    private long nodes;
+
+    private SearchLimits() {
+    }
+
+    public static SearchLimits moveTime(long millis) {
+        SearchLimits limits = new SearchLimits();
+        limits.moveTimeMillis = millis;
+        return limits;
+    }
+
+    public static SearchLimits clock(long remainingMillis, long incrementMillis) {
+        SearchLimits limits = new SearchLimits();
+        limits.remainingMillis = remainingMillis;
+        limits.incrementMillis = incrementMillis;
+        return limits;
+    }
+
+    public static SearchLimits depth(int depth) {
+        SearchLimits limits = new SearchLimits();
+        limits.depth = depth;
+        return limits;
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        SearchLimits limits = new SearchLimits();
+        limits.nodes = nodes;
+        return limits;
+    }
+
+    public static SearchLimits infinite() {
+        return new SearchLimits();
+    }
+
+    public long getMoveTimeMillis() { return moveTimeMillis; }
+    public long getRemainingMillis() { return remainingMillis; }
+    public long getIncrementMillis() { return incrementMillis; }
+    public int getDepth() { return depth; }
+    public long getNodes() { return nodes; }
+
+    /**
+     * Time after which no new iteration is started, or 0 for none.
+     */
+    long softTimeMillis() {
+        if (moveTimeMillis > 0) {
+            return moveTimeMillis;
+        }
+        if (remainingMillis > 0) {
+            return Math.min(remainingMillis / 30 + incrementMillis * 3 / 4, remainingMillis / 2);
+        }
+        return 0;
+    }
+
+    /**
+     * Time at which a running iteration is abandoned, or 0 for none.
+     */
+    long hardTimeMillis() {
+        if (moveTimeMillis > 0) {
+            return moveTimeMillis;
+        }
+        if (remainingMillis > 0) {
+            return Math.min(softTimeMillis() * 3, remainingMillis / 2);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,14 @@
+package engine;
+
+/**
+ * Receives a search's progress while it runs, for example to show the lines of an
+ * analysis as they deepen.
+ */
+public interface SearchListener {
+    /**
+     * An iteration completed. lines holds its MultiPV lines, best first, all of the same
+     * depth, nodes and time; a single line unless Search.setMultiPv was called.
+     * Called on the searching thread, so it should return quickly.
+     */
+    void iterationCompleted(SearchResult[] lines);
+}
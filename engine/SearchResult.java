@@ -0,0 +1,84 @@
+package engine;
+
+/**
+ * Outcome of one completed search iteration: best move, score, principal variation
+ * and the node and time counts behind them.
+ */
+public final class SearchResult {
+    private final int depth;
+    private final int score;
+    private final int[] pv;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    public SearchResult(int depth, int score, int[] pv, long nodes, long elapsedNanos) {
+        this.depth = depth;
+        this.score = score;
+        this.pv = pv;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getDepth() { return depth; }
+    public int getScore() { return score; }
+    public long getNodes() { return nodes; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+    /** Best move, or Move.NONE when the side to move has no legal move. */
+    public int getBestMove() {
+        return pv.length > 0 ? pv[0] : Move.NONE;
+    }
+
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1_000_000_000L / Math.max(elapsedNanos, 1);
+    }
+
+    public boolean isMateScore() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * Formats the score as "cp 35" or, for mate scores, "mate 3" (moves, negative when getting mated).
+     */
+    public String scoreString() {
+        if (!isMateScore()) {
+            return "cp " + score;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        int moves = (plies + 1) / 2;
+        return "mate " + (score > 0 ? moves : -moves);
+    }
+
+    public String pvString() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : pv) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(Move.toUci(move));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One UCI-style info line.
+     */
+    @Override
+    public String toString() {
+        return "info depth " + depth + " score " + scoreString() + " nodes " + nodes
+                + " nps " + getNodesPerSecond() + " time " + getElapsedMillis() + " pv " + pvString();
+    }
+
+    /**
+     * The info line of the given line (1 = best) of a MultiPV iteration.
+     */
+    public String toString(int multiPv) {
+        return "info depth " + depth + " multipv " + multiPv + " score " + scoreString() + " nodes " + nodes
+                + " nps " + getNodesPerSecond() + " time " + getElapsedMillis() + " pv " + pvString();
+    }
+}
@@ -0,0 +1,104 @@
+package engine;
+
+/**
+ * Static exchange evaluation: the material outcome of the capture sequence a move starts
+ * on its target square, with both sides always recapturing with their least valuable
+ * attacker and free to stop when going on would lose material. Sliders uncovered behind
+ * a capturing piece (x-rays) join in. Pins are not considered.
+ */
+public final class See {
+    // Exchange values; the king is worth more than anything it could win
+    private static final int[] VALUES = {100, 320, 330, 500, 900, 20000};
+
+    private See() {
+    }
+
+    public static int value(int type) {
+        return VALUES[type];
+    }
+
+    /**
+     * Material the move wins outright, before any recapture: the captured piece plus the
+     * promotion gain.
+     */
+    public static int capturedValue(BitboardPosition pos, int move) {
+        int value = 0;
+        if (Move.isEnPassant(move)) {
+            value = VALUES[BitboardPosition.PAWN];
+        } else if (Move.isCapture(move)) {
+            value = VALUES[BitboardPosition.typeOfCode(pos.pieceAt(Move.to(move)))];
+        }
+        if (Move.isPromotion(move)) {
+            value += VALUES[Move.promotionType(move)] - VALUES[BitboardPosition.PAWN];
+        }
+        return value;
+    }
+
+    /**
+     * True when the side to move comes out of the exchange the move starts with at least
+     * threshold centipawns. Works on running balances instead of a swap list, so it allocates
+     * nothing and stops as soon as the answer is known.
+     */
+    public static boolean isAtLeast(BitboardPosition pos, int move, int threshold) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int moverCode = pos.pieceAt(from);
+        int side = BitboardPosition.colorOfCode(moverCode);
+        int onSquare = Move.isPromotion(move) ? Move.promotionType(move) : BitboardPosition.typeOfCode(moverCode);
+
+        // What we are up after the move if nothing recaptures
+        int swap = capturedValue(pos, move) - threshold;
+        if (swap < 0) {
+            return false;
+        }
+        // What we are up if the mover is lost for nothing more
+        swap = VALUES[onSquare] - swap;
+        if (swap <= 0) {
+            return true;
+        }
+
+        long occupied = pos.occupied() ^ BitboardPosition.bit(from);
+        if (Move.isEnPassant(move)) {
+            occupied ^= BitboardPosition.bit(to + (side == BitboardPosition.WHITE ? 8 : -8));
+        }
+        long diagonal = pos.piecesOfType(BitboardPosition.BISHOP) | pos.piecesOfType(BitboardPosition.QUEEN);
+        long orthogonal = pos.piecesOfType(BitboardPosition.ROOK) | pos.piecesOfType(BitboardPosition.QUEEN);
+        long attackers = pos.attackersTo(to, occupied);
+
+        // result is 1 while the side that moved is ahead, flipped with each capture
+        int result = 1;
+        while (true) {
+            side ^= 1;
+            attackers &= occupied;
+            long ours = attackers & pos.pieces(side);
+            if (ours == 0) {
+                break;
+            }
+            result ^= 1;
+
+            // Capture with the least valuable attacker; swap becomes what the capturer risks
+            int type = BitboardPosition.PAWN;
+            long candidates = ours & pos.piecesOfType(type);
+            while (candidates == 0) {
+                candidates = ours & pos.piecesOfType(++type);
+            }
+            if (type == BitboardPosition.KING) {
+                // A king may only take last
+                return (attackers & pos.pieces(side ^ 1)) != 0 ? (result ^ 1) == 1 : result == 1;
+            }
+            swap = VALUES[type] - swap;
+            if (swap < result) {
+                break;
+            }
+            occupied ^= Long.lowestOneBit(candidates);
+            // Uncover sliders lined up behind the piece that just captured
+            if (type == BitboardPosition.PAWN || type == BitboardPosition.BISHOP || type == BitboardPosition.QUEEN) {
+                attackers |= Attacks.bishopAttacks(to, occupied) & diagonal;
+            }
+            if (type == BitboardPosition.ROOK || type == BitboardPosition.QUEEN) {
+                attackers |= Attacks.rookAttacks(to, occupied) & orthogonal;
+            }
+        }
+        return result == 1;
+    }
+}
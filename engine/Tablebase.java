@@ -0,0 +1,277 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Endgame tablebase prober: exact win/draw/loss and distance to mate for positions of up
+ * to four pieces, from a file written by TablebaseGenerator. The file is memory-mapped,
+ * so opening it reads nothing and a probe reads one or two words of one table.
+ *
+ * Each position has a code: 0 draw, an odd n a win with mate in n plies, an even n >= 2 a
+ * loss with mate in n - 2 plies, for the side to move. A table of N positions stores the
+ * codes in bits = bit length of its largest code, packed into little-endian longs.
+ *
+ * File format, little-endian: int magic "TBWD", int version, int table count, then per
+ * table its name (8 ASCII bytes, zero-padded), int bits, int positions and long offset of
+ * its codes from the start of the file, 8-byte aligned.
+ *
+ * Distances count plies to mate under perfect play and ignore the fifty-move rule; a
+ * position with castling rights or a capturable en-passant square is not probed. KK,
+ * KBK and KNK are draws without a table.
+ *
+ * Usage: java engine.Tablebase file.tb [fen]
+ * lists the tables in the file and probes the position, with its best move.
+ */
+public final class Tablebase {
+    /** Returned by probe() for positions not in the tablebase. */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    /** Most pieces, kings included, a tablebase position can have. */
+    public static final int MAX_PIECES = TablebaseIndex.MAX_PIECES;
+
+    static final int MAGIC = 0x44574254; // "TBWD" read as a little-endian int
+    static final int VERSION = 1;
+    static final int NAME_BYTES = 8;
+    static final int HEADER_BYTES = 12;
+    static final int DIRECTORY_ENTRY_BYTES = NAME_BYTES + 16;
+
+    private final Map<String, Table> tables = new HashMap<>();
+    // The same tables by TablebaseIndex.materialKey, so that a probe does not build a name
+    private final Table[] byMaterial = new Table[TablebaseIndex.MATERIAL_KEYS];
+
+    Tablebase() {
+    }
+
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_BYTES))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (size < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a tablebase file: " + path);
+            }
+            int count = header.getInt();
+            long directoryEnd = HEADER_BYTES + (long) count * DIRECTORY_ENTRY_BYTES;
+            if (count < 0 || directoryEnd > size) {
+                throw new IOException("Corrupt tablebase directory: " + path);
+            }
+            ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, directoryEnd - HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            Tablebase tablebase = new Tablebase();
+            byte[] name = new byte[NAME_BYTES];
+            for (int i = 0; i < count; i++) {
+                directory.get(name);
+                int bits = directory.getInt();
+                int positions = directory.getInt();
+                long offset = directory.getLong();
+                TablebaseIndex index;
+                try {
+                    index = TablebaseIndex.of(new String(name, StandardCharsets.US_ASCII).trim());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Corrupt tablebase directory: " + path, e);
+                }
+                long bytes = packedBytes(positions, bits);
+                if (positions != index.size() || bits < 1 || bits > 8 || offset < directoryEnd || offset + bytes > size) {
+                    throw new IOException("Corrupt tablebase directory entry " + index.getName() + ": " + path);
+                }
+                // The mappings stay valid after the channel is closed
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes);
+                tablebase.put(new PackedTable(index, data.order(ByteOrder.LITTLE_ENDIAN), bits));
+            }
+            return tablebase;
+        }
+    }
+
+    /** Names of the tables in the file, sorted. */
+    public String[] getTableNames() {
+        String[] names = tables.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    /**
+     * Exact score of the position for the side to move, as the search scores mates:
+     * Search.MATE - n when it mates in n plies, -Search.MATE + n when it is mated in n,
+     * 0 for a draw. UNKNOWN when the position is not covered.
+     */
+    public int probe(BitboardPosition position) {
+        int code = probeCode(position);
+        return code < 0 ? UNKNOWN : score(code);
+    }
+
+    /**
+     * The position's code, or -1 when it is not covered.
+     */
+    int probeCode(BitboardPosition position) {
+        long occupied = position.occupied();
+        if (Long.bitCount(occupied) > TablebaseIndex.MAX_PIECES || position.getCastlingRights() != 0) {
+            return -1;
+        }
+        int us = position.getSideToMove();
+        int ep = position.getEpSquare();
+        if (ep != BitboardPosition.NO_SQUARE
+                && (Attacks.pawnAttacks(1 - us, ep) & position.pieces(us, BitboardPosition.PAWN)) != 0) {
+            return -1;
+        }
+        long others = occupied & ~position.piecesOfType(BitboardPosition.KING);
+        if (others == 0 || (Long.bitCount(others) == 1 && (others & (position.piecesOfType(BitboardPosition.KNIGHT)
+                | position.piecesOfType(BitboardPosition.BISHOP))) != 0)) {
+            return 0; // no mating material
+        }
+        Table table = byMaterial[TablebaseIndex.materialKey(position, BitboardPosition.WHITE)];
+        if (table != null) {
+            return table.code(table.index.index(position, false));
+        }
+        table = byMaterial[TablebaseIndex.materialKey(position, BitboardPosition.BLACK)];
+        if (table != null) {
+            return table.code(table.index.index(position, true));
+        }
+        return -1;
+    }
+
+    /**
+     * Best move of a covered position: the fastest mate when winning, a drawing move when
+     * drawn, the slowest mate when losing. Move.NONE when there is no legal move or the
+     * position is not covered.
+     */
+    public int bestMove(BitboardPosition position) {
+        if (probeCode(position) < 0) {
+            return Move.NONE;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(position, moves, 0);
+        int bestMove = Move.NONE;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int code = probeCode(position);
+            position.unmakeMove(moves[i]);
+            int score = code < 0 ? Integer.MIN_VALUE + 1 : score(parentCode(code));
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    // Codes: helpers shared with the generator
+
+    static boolean isWin(int code) { return (code & 1) != 0; }
+    static boolean isLoss(int code) { return code >= 2 && (code & 1) == 0; }
+    static int plies(int code) { return isWin(code) ? code : code - 2; }
+    static int win(int plies) { return plies; }
+    static int loss(int plies) { return plies + 2; }
+
+    static int score(int code) {
+        return code == 0 ? 0 : isWin(code) ? Search.MATE - plies(code) : -Search.MATE + plies(code);
+    }
+
+    /** Code of a position for the side that just moved into a position with the given code. */
+    static int parentCode(int code) {
+        return code == 0 ? 0 : isWin(code) ? loss(plies(code) + 1) : win(plies(code) + 1);
+    }
+
+    static long packedBytes(int positions, int bits) {
+        return ((long) positions * bits + 63) / 64 * 8;
+    }
+
+    /** Adds a table held in memory, one code per byte; for the generator. */
+    void add(TablebaseIndex index, byte[] codes) {
+        put(new ByteTable(index, codes));
+    }
+
+    private void put(Table table) {
+        tables.put(table.index.getName(), table);
+        byMaterial[table.index.materialKey()] = table;
+    }
+
+    boolean contains(String name) {
+        return tables.containsKey(name);
+    }
+
+    private abstract static class Table {
+        final TablebaseIndex index;
+
+        Table(TablebaseIndex index) {
+            this.index = index;
+        }
+
+        abstract int code(int position);
+    }
+
+    private static final class PackedTable extends Table {
+        private final ByteBuffer data;
+        private final int bits;
+        private final long lastWord;
+
+        PackedTable(TablebaseIndex index, ByteBuffer data, int bits) {
+            super(index);
+            this.data = data;
+            this.bits = bits;
+            this.lastWord = data.capacity() / 8 - 1;
+        }
+
+        @Override
+        int code(int position) {
+            long bit = (long) position * bits;
+            long word = bit >>> 6;
+            int shift = (int) (bit & 63);
+            long value = data.getLong((int) (word << 3)) >>> shift;
+            if (shift + bits > 64 && word < lastWord) {
+                value |= data.getLong((int) ((word + 1) << 3)) << (64 - shift);
+            }
+            return (int) (value & ((1 << bits) - 1));
+        }
+    }
+
+    private static final class ByteTable extends Table {
+        private final byte[] codes;
+
+        ByteTable(TablebaseIndex index, byte[] codes) {
+            super(index);
+            this.codes = codes;
+        }
+
+        @Override
+        int code(int position) {
+            return codes[position] & 0xFF;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java engine.Tablebase file.tb [fen]");
+            System.exit(1);
+        }
+        Tablebase tablebase = open(Path.of(args[0]));
+        System.out.println("Tables:   " + String.join(" ", tablebase.getTableNames()));
+        if (args.length == 1) {
+            return;
+        }
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(String.join(" ", Arrays.copyOfRange(args, 1, args.length)));
+        long start = System.nanoTime();
+        int code = tablebase.probeCode(position);
+        long elapsed = System.nanoTime() - start;
+        if (code < 0) {
+            System.out.println("Not in the tablebase");
+            return;
+        }
+        String result = code == 0 ? "draw" : (isWin(code) ? "win, mate in " : "loss, mated in ") + plies(code) + " plies";
+        System.out.printf("Result:   %s (probe %.1f us)%n", result, elapsed / 1e3);
+        int move = tablebase.bestMove(position);
+        if (move != Move.NONE) {
+            System.out.println("bestmove " + Move.toUci(move));
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package engine;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Builds endgame tables by retrograde analysis and writes them in Tablebase's file format.
+ *
+ * A table is solved level by level. The first pass sets up every position: illegal and
+ * duplicate indices are dropped, checkmates and stalemates are resolved, and captures and
+ * promotions, which leave the table, are looked up in the smaller tables solved before
+ * it. Each position also counts its moves that stay in the table. Then, for n = 0, 1, ...,
+ * the positions mated in n plies make every position that can move into them a win in
+ * n + 1; the positions that win in n strike one move off the count of each predecessor,
+ * and a predecessor with no moves left is lost (or drawn, when a move leaving the table
+ * draws). Predecessors are found by taking moves back, which the unmove generator below
+ * does for the quiet moves that stay in the table. What is still open once no level
+ * changes anything is a draw.
+ *
+ * Every pass splits the table into chunks over a pool of threads; the move counters are
+ * decremented atomically, all other writes of a level set the same value.
+ *
+ * Tables with pawns on both sides are not generated, since en passant is not modelled.
+ *
+ * Usage: java engine.TablebaseGenerator [--threads n] file.tb [table ...]
+ * writes the named tables (by default DEFAULT_TABLES) and the smaller tables they need.
+ */
+public final class TablebaseGenerator {
+    public static final String[] DEFAULT_TABLES = {
+        "KQK", "KRK", "KPK", "KBNK", "KBBK",
+        "KQKQ", "KQKR", "KQKB", "KQKN", "KQKP", "KRKR", "KRKB", "KRKN", "KRKP"
+    };
+
+    private static final int UNRESOLVED = 255;
+    private static final int CHUNK = 1 << 14;
+    private static final int MAX_PLIES = 253; // the largest code must stay below UNRESOLVED
+    private static final VarHandle REMAINING = MethodHandles.arrayElementVarHandle(int[].class);
+    // Needed tables are named with the side of more material first
+    private static final String VALUE_ORDER = "QRBNP";
+    private static final int[] PIECE_VALUES = {9, 5, 3, 3, 1};
+
+    private final ExecutorService pool;
+    private final Tablebase solved = new Tablebase();
+    private final Map<String, byte[]> results = new LinkedHashMap<>();
+
+    public TablebaseGenerator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "tablebase-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Solves the table, after the tables its captures and promotions lead to, unless it
+     * is solved already.
+     */
+    public void generate(String name) {
+        TablebaseIndex index = TablebaseIndex.of(name);
+        int second = name.indexOf('K', 1);
+        String white = name.substring(1, second);
+        String black = name.substring(second + 1);
+        if (!white.equals(sortPieces(white)) || !black.equals(sortPieces(black))) {
+            throw new IllegalArgumentException("Pieces must be listed from queen to pawn: " + name);
+        }
+        if (white.indexOf('P') >= 0 && black.indexOf('P') >= 0) {
+            throw new IllegalArgumentException("Tables with pawns on both sides are not supported: " + name);
+        }
+        if (isTrivial(name) || solved.contains(name) || solved.contains(mirrored(name))) {
+            return;
+        }
+        for (String needed : successors(index)) {
+            generate(needed);
+        }
+        long start = System.nanoTime();
+        byte[] codes = new Solver(index).solve();
+        solved.add(index, codes);
+        results.put(name, codes);
+        System.out.printf("%-6s %,12d positions, %5.1f s%n", name, codes.length, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes every table generated so far.
+     */
+    public void write(Path path) throws IOException {
+        int[] bits = new int[results.size()];
+        long offset = align(Tablebase.HEADER_BYTES + (long) results.size() * Tablebase.DIRECTORY_ENTRY_BYTES);
+        ByteBuffer directory = ByteBuffer.allocate((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+        directory.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(results.size());
+        int t = 0;
+        for (Map.Entry<String, byte[]> table : results.entrySet()) {
+            int max = 1;
+            for (byte code : table.getValue()) {
+                max = Math.max(max, code & 0xFF);
+            }
+            bits[t] = 32 - Integer.numberOfLeadingZeros(max);
+            directory.put(Arrays.copyOf(table.getKey().getBytes(StandardCharsets.US_ASCII), Tablebase.NAME_BYTES));
+            directory.putInt(bits[t]).putInt(table.getValue().length).putLong(offset);
+            offset += Tablebase.packedBytes(table.getValue().length, bits[t]);
+            t++;
+        }
+        directory.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, directory);
+            t = 0;
+            for (byte[] codes : results.values()) {
+                writeFully(channel, pack(codes, bits[t++]));
+            }
+        }
+    }
+
+    private static ByteBuffer pack(byte[] codes, int bits) {
+        long[] words = new long[(int) (Tablebase.packedBytes(codes.length, bits) / 8)];
+        for (int i = 0; i < codes.length; i++) {
+            long bit = (long) i * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long value = codes[i] & 0xFF;
+            words[word] |= value << shift;
+            if (shift + bits > 64) {
+                words[word + 1] |= value >>> (64 - shift);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asLongBuffer().put(words);
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    // KK, KBK and KNK: Tablebase answers them as draws without a table
+    private static boolean isTrivial(String name) {
+        String pieces = name.replace("K", "");
+        return pieces.isEmpty() || pieces.equals("B") || pieces.equals("N");
+    }
+
+    private static String mirrored(String name) {
+        int second = name.indexOf('K', 1);
+        return name.substring(second) + name.substring(0, second);
+    }
+
+    /**
+     * Tables reached by one capture or promotion, named with the stronger side first.
+     */
+    private static List<String> successors(TablebaseIndex index) {
+        String name = index.getName();
+        int second = name.indexOf('K', 1);
+        String white = name.substring(1, second);
+        String black = name.substring(second + 1);
+        List<String> names = new ArrayList<>();
+        for (int side = 0; side < 2; side++) {
+            String us = side == 0 ? white : black;
+            String them = side == 0 ? black : white;
+            // Captures of one of their pieces, with or without a promotion of ours
+            for (int i = 0; i < them.length(); i++) {
+                String rest = them.substring(0, i) + them.substring(i + 1);
+                addMaterial(names, us, rest);
+                for (String promoted : promotions(us)) {
+                    addMaterial(names, promoted, rest);
+                }
+            }
+            for (String promoted : promotions(us)) {
+                addMaterial(names, promoted, them);
+            }
+        }
+        return names;
+    }
+
+    private static List<String> promotions(String pieces) {
+        List<String> result = new ArrayList<>();
+        int pawn = pieces.indexOf('P');
+        if (pawn >= 0) {
+            for (char piece : "QRBN".toCharArray()) {
+                result.add(pieces.substring(0, pawn) + piece + pieces.substring(pawn + 1));
+            }
+        }
+        return result;
+    }
+
+    private static void addMaterial(List<String> names, String a, String b) {
+        a = sortPieces(a);
+        b = sortPieces(b);
+        String name = value(a) >= value(b) ? "K" + a + "K" + b : "K" + b + "K" + a;
+        if (!names.contains(name)) {
+            names.add(name);
+        }
+    }
+
+    private static String sortPieces(String pieces) {
+        char[] letters = pieces.toCharArray();
+        Arrays.sort(letters);
+        StringBuilder sorted = new StringBuilder();
+        for (char piece : VALUE_ORDER.toCharArray()) {
+            for (char letter : letters) {
+                if (letter == piece) {
+                    sorted.append(letter);
+                }
+            }
+        }
+        return sorted.toString();
+    }
+
+    private static int value(String pieces) {
+        int value = 0;
+        for (char piece : pieces.toCharArray()) {
+            value += PIECE_VALUES[VALUE_ORDER.indexOf(piece)];
+        }
+        return value;
+    }
+
+    /**
+     * Runs the task on every chunk of [0, size) in the pool and waits for all of them.
+     */
+    private void parallelFor(int size, IntConsumer chunk) {
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int start = 0; start < size; start += CHUNK) {
+            int first = start;
+            tasks.add(pool.submit(() -> chunk.accept(first)));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Tablebase generation interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Tablebase generation failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Solving state of one table. Per position: its code (UNRESOLVED until known), the
+     * number of its moves within the table not yet known to win for the opponent, and
+     * the best code of a move leaving the table, seen from the position (UNRESOLVED: none).
+     */
+    private final class Solver {
+        private final TablebaseIndex index;
+        private final int size;
+        private final byte[] codes;
+        private final int[] remaining;
+        private final byte[] exits;
+        private final ThreadLocal<Worker> workers;
+        private volatile boolean changed;
+        private int longestExit; // plies of the longest mate among the exit codes
+
+        Solver(TablebaseIndex index) {
+            this.index = index;
+            size = index.size();
+            codes = new byte[size];
+            remaining = new int[size];
+            exits = new byte[size];
+            workers = ThreadLocal.withInitial(Worker::new);
+        }
+
+        byte[] solve() {
+            parallelFor(size, first -> workers.get().initialize(first));
+            int lastChange = 0;
+            for (int n = 0; n <= lastChange + 1 || n <= longestExit; n++) {
+                if (n > MAX_PLIES) {
+                    throw new IllegalStateException("Mate too long to encode in " + index.getName());
+                }
+                int level = n;
+                changed = false;
+                parallelFor(size, first -> workers.get().resolveExits(first, level));
+                parallelFor(size, first -> workers.get().propagate(first, level));
+                if (changed) {
+                    lastChange = n;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                if ((codes[i] & 0xFF) == UNRESOLVED) {
+                    codes[i] = 0;
+                }
+            }
+            return codes;
+        }
+
+        private synchronized void noteExit(int code) {
+            if (code != 0 && code != UNRESOLVED) {
+                longestExit = Math.max(longestExit, Tablebase.plies(code));
+            }
+        }
+
+        private int get(int i) {
+            return codes[i] & 0xFF;
+        }
+
+        /** Code once every move staying in the table is known to lose, after n plies. */
+        private int allMovesLose(int i, int n) {
+            int exit = exits[i] & 0xFF;
+            if (exit == UNRESOLVED) {
+                return Tablebase.loss(n + 1);
+            }
+            if (Tablebase.isWin(exit)) {
+                return UNRESOLVED; // resolved by resolveExits at its level
+            }
+            if (exit == 0) {
+                return 0;
+            }
+            // A slower loss by leaving the table is resolved by resolveExits at its level
+            return Tablebase.plies(exit) <= n + 1 ? Tablebase.loss(n + 1) : UNRESOLVED;
+        }
+
+        private final class Worker {
+            private final BitboardPosition position = new BitboardPosition();
+            private final BitboardPosition image = new BitboardPosition();
+            private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+            private final int[] seen = new int[MoveGenerator.MAX_MOVES * 8];
+
+            void initialize(int first) {
+                int last = Math.min(first + CHUNK, size);
+                for (int i = first; i < last; i++) {
+                    codes[i] = (byte) initialCode(i);
+                }
+            }
+
+            private int initialCode(int i) {
+                exits[i] = (byte) UNRESOLVED;
+                if (!index.decode(i, position) || !index.isCanonical(position, i) || !isLegal(position)) {
+                    return 0; // never probed
+                }
+                int us = position.getSideToMove();
+                int count = MoveGenerator.generateLegal(position, moves, 0);
+                if (count == 0) {
+                    return position.isInCheck(us) ? Tablebase.loss(0) : 0;
+                }
+                int inTable = 0;
+                int bestExit = UNRESOLVED;
+                for (int m = 0; m < count; m++) {
+                    int move = moves[m];
+                    position.makeMove(move);
+                    if (Move.isCapture(move) || Move.isPromotion(move)) {
+                        int code = solved.probeCode(position);
+                        if (code < 0) {
+                            throw new IllegalStateException("No table for " + position.toFen());
+                        }
+                        bestExit = better(bestExit, Tablebase.parentCode(code));
+                    } else {
+                        inTable += add(seen, inTable, index.index(position, false));
+                    }
+                    position.unmakeMove(move);
+                }
+                exits[i] = (byte) bestExit;
+                noteExit(bestExit);
+                remaining[i] = inTable;
+                if (inTable > 0) {
+                    return UNRESOLVED;
+                }
+                return bestExit;
+            }
+
+            // Pawns on the first or last rank, or the side not to move in check
+            private boolean isLegal(BitboardPosition position) {
+                long pawns = position.piecesOfType(BitboardPosition.PAWN);
+                if ((pawns & 0xFF000000000000FFL) != 0) {
+                    return false;
+                }
+                return !position.isInCheck(1 - position.getSideToMove());
+            }
+
+            void resolveExits(int first, int n) {
+                int last = Math.min(first + CHUNK, size);
+                for (int i = first; i < last; i++) {
+                    if (get(i) != UNRESOLVED) {
+                        continue;
+                    }
+                    int exit = exits[i] & 0xFF;
+                    if (exit == UNRESOLVED || exit == 0 || Tablebase.plies(exit) != n) {
+                        continue;
+                    }
+                    if (Tablebase.isWin(exit) || remaining[i] == 0) {
+                        codes[i] = (byte) exit;
+                        changed = true;
+                    }
+                }
+            }
+
+            void propagate(int first, int n) {
+                int target = (n & 1) == 0 ? Tablebase.loss(n) : Tablebase.win(n);
+                int last = Math.min(first + CHUNK, size);
+                for (int i = first; i < last; i++) {
+                    if (get(i) != target) {
+                        continue;
+                    }
+                    index.decode(i, position);
+                    int count = unmoves(position, seen);
+                    for (int p = 0; p < count; p++) {
+                        int predecessor = seen[p];
+                        if (get(predecessor) != UNRESOLVED) {
+                            continue;
+                        }
+                        if ((n & 1) == 0) {
+                            codes[predecessor] = (byte) Tablebase.win(n + 1);
+                            changed = true;
+                        } else if ((int) REMAINING.getAndAdd(remaining, predecessor, -1) == 1) {
+                            int code = allMovesLose(predecessor, n);
+                            if (code != UNRESOLVED) {
+                                codes[predecessor] = (byte) code;
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            /**
+             * Indices of the positions with a quiet move, staying in the table, to this
+             * position or to any symmetric image of it; each index once.
+             */
+            private int unmoves(BitboardPosition position, int[] out) {
+                int count = 0;
+                for (int s = 0; s < index.symmetries(); s++) {
+                    index.transform(position, s, image);
+                    count = unmoves(image, out, count);
+                }
+                return count;
+            }
+
+            private int unmoves(BitboardPosition position, int[] out, int count) {
+                int them = position.getSideToMove();
+                int mover = 1 - them;
+                long empty = ~position.occupied();
+                long pieces = position.pieces(mover);
+                while (pieces != 0) {
+                    int to = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    int type = BitboardPosition.typeOfCode(position.pieceAt(to));
+                    long origins;
+                    if (type == BitboardPosition.PAWN) {
+                        origins = pawnOrigins(mover, to, empty);
+                    } else {
+                        origins = Attacks.pieceAttacks(type, to, position.occupied()) & empty;
+                    }
+                    while (origins != 0) {
+                        int from = Long.numberOfTrailingZeros(origins);
+                        origins &= origins - 1;
+                        position.movePiece(to, from);
+                        position.setSideToMove(mover);
+                        if (!position.isInCheck(them)) {
+                            count += add(out, count, index.index(position, false));
+                        }
+                        position.movePiece(from, to);
+                        position.setSideToMove(them);
+                    }
+                }
+                return count;
+            }
+        }
+    }
+
+    // Squares a pawn now on the given square can have come from with a push
+    private static long pawnOrigins(int color, int to, long empty) {
+        int back = color == BitboardPosition.WHITE ? 8 : -8;
+        int backRow = color == BitboardPosition.WHITE ? 7 : 0;
+        int startRow = color == BitboardPosition.WHITE ? 6 : 1;
+        int single = to + back;
+        if (BitboardPosition.rowOf(single) == backRow || (empty & BitboardPosition.bit(single)) == 0) {
+            return 0;
+        }
+        long origins = BitboardPosition.bit(single);
+        int twice = single + back;
+        if (BitboardPosition.rowOf(single) != startRow && BitboardPosition.rowOf(twice) == startRow
+                && (empty & BitboardPosition.bit(twice)) != 0) {
+            origins |= BitboardPosition.bit(twice);
+        }
+        return origins;
+    }
+
+    // Appends the value unless already present; returns how many were added
+    private static int add(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return 0;
+            }
+        }
+        values[count] = value;
+        return 1;
+    }
+
+    // The better of two codes for the side to move; UNRESOLVED stands for no code yet
+    private static int better(int a, int b) {
+        if (a == UNRESOLVED) {
+            return b;
+        }
+        return preference(b) > preference(a) ? b : a;
+    }
+
+    private static int preference(int code) {
+        if (code == 0) {
+            return 0;
+        }
+        return Tablebase.isWin(code) ? 1000 - Tablebase.plies(code) : -1000 + Tablebase.plies(code);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String file = null;
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].startsWith("--")) {
+                file = null;
+                break;
+            } else if (file == null) {
+                file = args[i];
+            } else {
+                names.add(args[i]);
+            }
+        }
+        if (file == null) {
+            System.err.println("Usage: java engine.TablebaseGenerator [--threads n] file.tb [table ...]");
+            System.exit(1);
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(threads);
+        long start = System.nanoTime();
+        for (String name : names.isEmpty() ? Arrays.asList(DEFAULT_TABLES) : names) {
+            generator.generate(name);
+        }
+        generator.write(Path.of(file));
+        generator.shutdown();
+        System.out.printf("Wrote %s with %d tables in %.1f s on %d threads%n", file, generator.results.size(),
+                (System.nanoTime() - start) / 1e9, threads);
+    }
+}
@@ -0,0 +1,264 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Position numbering of one endgame table, for example KQKR: White has the king and the
+ * pieces named before the second K, Black the rest. Shared by the generator and the prober.
+ *
+ * index = ((stm * kingSquares + whiteKing) * 64 + blackKing) * 64^pieces + piece squares
+ *
+ * Symmetry shrinks the White king's range: without pawns the board is mirrored and
+ * flipped until the White king stands in the a1-d1-d4 triangle (10 squares); with pawns
+ * only left-right mirroring applies, to the a-d files (32 squares). Identical pieces are
+ * numbered in ascending square order. Some indices therefore name no position, or an
+ * image of a position that has a smaller index; isCanonical tells the real ones apart.
+ */
+final class TablebaseIndex {
+    static final int MAX_PIECES = 4;
+    static final int MATERIAL_KEYS = 59049; // 3^10, see materialKey
+
+    private static final String TYPE_LETTERS = "PNBRQK";
+    // Pawnless tables: White king squares of the a1-d1-d4 triangle, and their numbers
+    private static final int[] TRIANGLE_INDEX = new int[64];
+    private static final int[] TRIANGLE_SQUARE = new int[10];
+
+    static {
+        Arrays.fill(TRIANGLE_INDEX, -1);
+        int n = 0;
+        for (int rank = 0; rank < 4; rank++) {
+            for (int file = rank; file < 4; file++) {
+                int sq = BitboardPosition.square(file, 7 - rank);
+                TRIANGLE_INDEX[sq] = n;
+                TRIANGLE_SQUARE[n++] = sq;
+            }
+        }
+    }
+
+    private final String name;
+    private final int[] codes; // piece code of each non-king piece, White's first
+    private final boolean pawns;
+    private final int kingSquares;
+    private final int size;
+
+    private TablebaseIndex(String name, int[] codes) {
+        this.name = name;
+        this.codes = codes;
+        boolean anyPawn = false;
+        for (int code : codes) {
+            anyPawn |= BitboardPosition.typeOfCode(code) == BitboardPosition.PAWN;
+        }
+        this.pawns = anyPawn;
+        this.kingSquares = anyPawn ? 32 : 10;
+        this.size = 2 * kingSquares * 64 << (6 * codes.length);
+    }
+
+    /**
+     * Parses a table name such as KQKR or KPK.
+     */
+    static TablebaseIndex of(String name) {
+        int second = name.indexOf('K', 1);
+        if (!name.startsWith("K") || second < 0 || name.length() > MAX_PIECES) {
+            throw new IllegalArgumentException("Not a table name of up to " + MAX_PIECES + " pieces: " + name);
+        }
+        int[] codes = new int[name.length() - 2];
+        int n = 0;
+        for (int i = 1; i < name.length(); i++) {
+            if (i == second) {
+                continue;
+            }
+            int type = TYPE_LETTERS.indexOf(name.charAt(i));
+            if (type < 0 || type == BitboardPosition.KING) {
+                throw new IllegalArgumentException("Not a table name: " + name);
+            }
+            codes[n++] = BitboardPosition.pieceCode(i < second ? BitboardPosition.WHITE : BitboardPosition.BLACK, type);
+        }
+        return new TablebaseIndex(name, codes);
+    }
+
+    /**
+     * Number of a material balance with the given colour playing White, counting up to two
+     * pieces of each kind: below MATERIAL_KEYS. Equal for the position and for its table.
+     */
+    static int materialKey(BitboardPosition position, int white) {
+        int key = 0;
+        for (int type = BitboardPosition.QUEEN; type >= BitboardPosition.PAWN; type--) {
+            key = (key * 3 + Long.bitCount(position.pieces(white, type))) * 3
+                    + Long.bitCount(position.pieces(1 - white, type));
+        }
+        return key;
+    }
+
+    int materialKey() {
+        int[] counts = new int[12];
+        for (int code : codes) {
+            counts[code]++;
+        }
+        int key = 0;
+        for (int type = BitboardPosition.QUEEN; type >= BitboardPosition.PAWN; type--) {
+            key = (key * 3 + counts[BitboardPosition.pieceCode(BitboardPosition.WHITE, type)]) * 3
+                    + counts[BitboardPosition.pieceCode(BitboardPosition.BLACK, type)];
+        }
+        return key;
+    }
+
+    String getName() { return name; }
+    int size() { return size; }
+
+    /**
+     * Index of a position with this table's material; with flip, the board's colours are
+     * swapped first (the table's White is the board's Black) and the board mirrored top to bottom.
+     * Without pawns, a White king on the a1-h8 diagonal leaves two symmetries; the smaller
+     * index is taken, so that all images of a position share one index.
+     */
+    int index(BitboardPosition position, boolean flip) {
+        int whiteKing = position.kingSquare(flip ? 1 : 0) ^ (flip ? 56 : 0);
+        int symmetry = symmetry(whiteKing);
+        int index = index(position, flip, symmetry);
+        int king = transform(whiteKing, symmetry);
+        if (!pawns && 7 - BitboardPosition.rowOf(king) == BitboardPosition.colOf(king)) {
+            index = Math.min(index, index(position, flip, symmetry | 4));
+        }
+        return index;
+    }
+
+    private int index(BitboardPosition position, boolean flip, int symmetry) {
+        int flipColor = flip ? 1 : 0;
+        int flipRank = flip ? 56 : 0;
+        int whiteKing = position.kingSquare(flipColor) ^ flipRank;
+        int blackKing = position.kingSquare(1 - flipColor) ^ flipRank;
+        int stm = position.getSideToMove() ^ flipColor;
+
+        int index = stm * kingSquares + kingIndex(transform(whiteKing, symmetry));
+        index = index * 64 + transform(blackKing, symmetry);
+
+        int i = 0;
+        while (i < codes.length) {
+            int code = codes[i];
+            long board = position.pieces(BitboardPosition.colorOfCode(code) ^ flipColor, BitboardPosition.typeOfCode(code));
+            // Squares of this piece kind, transformed and sorted, fill its consecutive slots
+            int count = Long.bitCount(board);
+            int first = transformNext(board, flipRank, symmetry);
+            if (count == 1) {
+                index = index * 64 + first;
+            } else {
+                int second = transformNext(board & (board - 1), flipRank, symmetry);
+                index = (index * 64 + Math.min(first, second)) * 64 + Math.max(first, second);
+            }
+            i += count;
+        }
+        return index;
+    }
+
+    private static int transformNext(long board, int flipRank, int symmetry) {
+        return transform(Long.numberOfTrailingZeros(board) ^ flipRank, symmetry);
+    }
+
+    /**
+     * Sets up the position with the index. Returns false when two pieces would share a
+     * square; the position may still be illegal or not canonical.
+     */
+    boolean decode(int index, BitboardPosition out) {
+        out.clear();
+        long used = 0;
+        int[] squares = new int[codes.length];
+        for (int i = codes.length - 1; i >= 0; i--) {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        int blackKing = index & 63;
+        index >>>= 6;
+        int whiteKing = pawns ? kingSquareOf(index % kingSquares) : TRIANGLE_SQUARE[index % kingSquares];
+        int stm = index / kingSquares;
+
+        used |= BitboardPosition.bit(whiteKing);
+        if ((used & BitboardPosition.bit(blackKing)) != 0) {
+            return false;
+        }
+        used |= BitboardPosition.bit(blackKing);
+        out.addPiece(BitboardPosition.WHITE, BitboardPosition.KING, whiteKing);
+        out.addPiece(BitboardPosition.BLACK, BitboardPosition.KING, blackKing);
+        for (int i = 0; i < codes.length; i++) {
+            if ((used & BitboardPosition.bit(squares[i])) != 0) {
+                return false;
+            }
+            used |= BitboardPosition.bit(squares[i]);
+            out.addPiece(BitboardPosition.colorOfCode(codes[i]), BitboardPosition.typeOfCode(codes[i]), squares[i]);
+        }
+        out.setSideToMove(stm);
+        return true;
+    }
+
+    /** Number of board symmetries of the table: 8 without pawns, 2 (left-right) with. */
+    int symmetries() {
+        return pawns ? 2 : 8;
+    }
+
+    /**
+     * Sets out to the image of the position under symmetry s, for s below symmetries();
+     * the side to move is kept.
+     */
+    void transform(BitboardPosition position, int s, BitboardPosition out) {
+        out.clear();
+        long pieces = position.occupied();
+        while (pieces != 0) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int code = position.pieceAt(sq);
+            out.addPiece(BitboardPosition.colorOfCode(code), BitboardPosition.typeOfCode(code), transform(sq, s));
+        }
+        out.setSideToMove(position.getSideToMove());
+    }
+
+    /**
+     * True when a decoded position is the one its index stands for: symmetry did not
+     * move it, identical pieces are in ascending order and no other image of it has a
+     * smaller index.
+     */
+    boolean isCanonical(BitboardPosition position, int index) {
+        return index(position, false) == index;
+    }
+
+    // Symmetry putting the White king in its reduced range: bit 0 mirrors files, bit 1 ranks, bit 2 the diagonal
+    private int symmetry(int whiteKing) {
+        int symmetry = 0;
+        if (BitboardPosition.colOf(whiteKing) > 3) {
+            symmetry |= 1;
+            whiteKing ^= 7;
+        }
+        if (!pawns) {
+            if (BitboardPosition.rowOf(whiteKing) < 4) {
+                symmetry |= 2;
+                whiteKing ^= 56;
+            }
+            // Rank counted from White's side above the file: reflect in the a1-h8 diagonal
+            if (7 - BitboardPosition.rowOf(whiteKing) > BitboardPosition.colOf(whiteKing)) {
+                symmetry |= 4;
+            }
+        }
+        return symmetry;
+    }
+
+    private static int transform(int square, int symmetry) {
+        if ((symmetry & 1) != 0) {
+            square ^= 7;
+        }
+        if ((symmetry & 2) != 0) {
+            square ^= 56;
+        }
+        if ((symmetry & 4) != 0) {
+            int col = BitboardPosition.colOf(square);
+            int row = BitboardPosition.rowOf(square);
+            square = BitboardPosition.square(7 - row, 7 - col);
+        }
+        return square;
+    }
+
+    private int kingIndex(int square) {
+        return pawns ? BitboardPosition.rowOf(square) * 4 + BitboardPosition.colOf(square) : TRIANGLE_INDEX[square];
+    }
+
+    private static int kingSquareOf(int index) {
+        return BitboardPosition.square(index & 3, index >>> 2);
+    }
+}
@@ -0,0 +1,179 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Search results cache keyed on Zobrist key, shared by all search threads without locks.
+ *
+ * The table is a power-of-two number of buckets of four entries; a bucket is 64 bytes,
+ * one cache line. Each entry is two longs, (check, data) with check = key ^ data, like
+ * PerftHashTable: a reader accepts an entry only if its words XOR back to the key, so a
+ * torn entry written concurrently by another thread reads as a miss.
+ *
+ * Data word layout:
+ *   bits  0-15  best move (engine.Move, fits in 16 bits)
+ *   bits 16-31  score (signed)
+ *   bits 32-39  depth
+ *   bits 40-41  bound (EXACT, LOWER or UPPER; never 0, so data of a real entry is never 0)
+ *   bits 42-47  age (search generation)
+ *   bits 48-63  static evaluation (signed)
+ *
+ * Replacement: an entry for the same key is overwritten in place; otherwise the entry whose
+ * depth, less a penalty for each generation of age, is lowest makes room.
+ *
+ * Statistics: probe() and store() count nothing, to keep shared writes off the search's
+ * hot path. Each search thread counts its own probes, hits, stores and collisions and
+ * adds them with addStatistics() when it finishes.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2; // score is a lower bound (fail high)
+    public static final int UPPER = 3; // score is an upper bound (fail low)
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int ENTRY_LONGS = 2;
+    private static final int AGE_MASK = 63;
+    private static final int AGE_PENALTY = 8; // depth one generation of age is worth
+
+    private final long[] table;
+    private final long bucketMask;
+    private int age;
+
+    // Guarded by this table's lock; written once per finished search thread
+    private long probes;
+    private long hits;
+    private long stores;
+    private long collisions;
+
+    /**
+     * @param megabytes table size; rounded down to a power-of-two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        long bucketBytes = BUCKET_SIZE * ENTRY_LONGS * 8;
+        long buckets = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / bucketBytes));
+        buckets = Math.min(buckets, 1L << 27); // keep the long[] index in int range
+        table = new long[(int) buckets * BUCKET_SIZE * ENTRY_LONGS];
+        bucketMask = buckets - 1;
+    }
+
+    private int bucket(long key) {
+        return (int) (key & bucketMask) * BUCKET_SIZE * ENTRY_LONGS;
+    }
+
+    /**
+     * Returns the data word stored for the key, or 0 on a miss. Unpack it with the static accessors.
+     */
+    public long probe(long key) {
+        int base = bucket(key);
+        for (int i = base; i < base + BUCKET_SIZE * ENTRY_LONGS; i += ENTRY_LONGS) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores an entry. Returns true when it evicted an entry of another position written
+     * during the current search, a collision.
+     */
+    public boolean store(long key, int move, int score, int eval, int depth, int bound) {
+        int base = bucket(key);
+        int victim = base;
+        int victimWorth = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_SIZE * ENTRY_LONGS; i += ENTRY_LONGS) {
+            long data = table[i + 1];
+            if (data == 0 || (table[i] ^ data) == key) {
+                victim = i;
+                // Keep the known best move when this search did not find one
+                if (move == Move.NONE && data != 0) {
+                    move = move(data);
+                }
+                victimWorth = -1;
+                break;
+            }
+            int worth = depth(data) - AGE_PENALTY * ((age - age(data)) & AGE_MASK);
+            if (worth < victimWorth) {
+                victim = i;
+                victimWorth = worth;
+            }
+        }
+        // Evicting another position is a collision when that entry is from the current search
+        boolean collision = victimWorth >= 0 && age(table[victim + 1]) == age;
+
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) depth << 32)
+                | ((long) bound << 40)
+                | ((long) age << 42)
+                | ((eval & 0xFFFFL) << 48);
+        table[victim] = key ^ data;
+        table[victim + 1] = data;
+        return collision;
+    }
+
+    /**
+     * Starts a new search generation, so entries from earlier searches are replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+        resetStatistics();
+    }
+
+    public synchronized void resetStatistics() {
+        probes = 0;
+        hits = 0;
+        stores = 0;
+        collisions = 0;
+    }
+
+    /** Adds one search thread's counts; see the class comment. */
+    public synchronized void addStatistics(long probes, long hits, long stores, long collisions) {
+        this.probes += probes;
+        this.hits += hits;
+        this.stores += stores;
+        this.collisions += collisions;
+    }
+
+    public static int move(long data) { return (int) (data & 0xFFFF); }
+    public static int score(long data) { return (short) (data >>> 16); }
+    public static int depth(long data) { return (int) (data >>> 32) & 0xFF; }
+    public static int bound(long data) { return (int) (data >>> 40) & 3; }
+    public static int eval(long data) { return (short) (data >>> 48); }
+    private static int age(long data) { return (int) (data >>> 42) & AGE_MASK; }
+
+    public synchronized long getProbes() { return probes; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getStores() { return stores; }
+    /** Stores that evicted an entry of another position written during the current search. */
+    public synchronized long getCollisions() { return collisions; }
+
+    public synchronized double hitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Share of entries, in permille, written during the current search; sampled from the first buckets.
+     */
+    public int hashfull() {
+        int sampled = Math.min(table.length / ENTRY_LONGS, 1000);
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = table[i * ENTRY_LONGS + 1];
+            if (data != 0 && age(data) == age) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+
+    public int sizeInMegabytes() {
+        return (int) ((long) table.length * 8 / (1024 * 1024));
+    }
+}
@@ -0,0 +1,86 @@
+package engine;
+
+/**
+ * Zobrist hashing keys. A position's key is the XOR of one random number per
+ * (piece, square), plus keys for the side to move, the castling rights and the
+ * en-passant file. BitboardPosition keeps its key up to date incrementally.
+ * The numbers come from a fixed seed so keys are stable between runs.
+ */
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EP_FILE = new long[8];
+    private static final long SIDE;
+
+    static {
+        long state = 0x9E3779B97F4A7C15L;
+        for (int code = 0; code < 12; code++) {
+            for (int sq = 0; sq < 64; sq++) {
+                state = splitMix(state);
+                PIECE_SQUARE[code][sq] = mix(state);
+            }
+        }
+        // Each right gets its own key; combined rights XOR them together
+        long[] rightKeys = new long[4];
+        for (int i = 0; i < 4; i++) {
+            state = splitMix(state);
+            rightKeys[i] = mix(state);
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            for (int i = 0; i < 4; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING[rights] ^= rightKeys[i];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            state = splitMix(state);
+            EP_FILE[file] = mix(state);
+        }
+        state = splitMix(state);
+        SIDE = mix(state);
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int code, int square) { return PIECE_SQUARE[code][square]; }
+    public static long castling(int rights) { return CASTLING[rights]; }
+    public static long side() { return SIDE; }
+
+    /**
+     * Key for an en-passant square, or 0 when there is none.
+     */
+    public static long enPassant(int square) {
+        return square == BitboardPosition.NO_SQUARE ? 0L : EP_FILE[BitboardPosition.colOf(square)];
+    }
+
+    /**
+     * Computes a position's key from scratch. Used to set up and to check the incremental key.
+     */
+    public static long compute(BitboardPosition pos) {
+        long key = 0L;
+        long occupied = pos.occupied();
+        while (occupied != 0) {
+            int sq = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            key ^= PIECE_SQUARE[pos.pieceAt(sq)][sq];
+        }
+        key ^= CASTLING[pos.getCastlingRights()];
+        key ^= enPassant(pos.getEpSquare());
+        if (pos.getSideToMove() == BitboardPosition.BLACK) {
+            key ^= SIDE;
+        }
+        return key;
+    }
+
+    private static long splitMix(long state) {
+        return state + 0x9E3779B97F4A7C15L;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -5,10 +5,23 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
+import engine.BitboardPosition;
+import engine.Engine;
+import engine.Move;
+import engine.MoveGenerator;
+import engine.NnueNetwork;
+import engine.PolyglotBook;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.Tablebase;
 import piece.Bishop;
 import piece.King;
 import piece.Knight;
@@ -38,7 +51,59 @@ public class GamePanel extends JPanel implements Runnable {
 	public static ArrayList<Piece> getSimPieces() {
 		return simPieces;
 	}
+	// Bitboard board state, kept in step with simPieces; all occupancy queries go here
+	private static BitboardPosition position = new BitboardPosition();
+	public static BitboardPosition getPosition() {
+		return position;
+	}
 	Piece activeP;//currently selected (active) piece
+	// Reused move list for the legal move generator (guarded by this panel's lock)
+	private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+	// Legal destinations of the selected piece as a square mask, valid for one piece and position key
+	private long legalTargets;
+	private Piece legalTargetsPiece;
+	private long legalTargetsKey;
+
+	// Computer opponent: -Dchess.engine=white|black|both picks the sides it plays (off by default),
+	// -Dchess.movetime its thinking time per move in milliseconds, -Dchess.nnue a network file to evaluate with
+	private static final String ENGINE_SIDES = System.getProperty("chess.engine", "");
+	private static final long ENGINE_MOVE_TIME = Long.getLong("chess.movetime", 1000);
+	private static final String ENGINE_NETWORK = System.getProperty("chess.nnue");
+	private final Engine engine = new Engine();
+
+	// Pondering: while the human thinks, the engine searches the reply it expects (the second
+	// move of its last principal variation) in the background; -Dchess.ponder=false turns it off
+	private static final boolean ENGINE_PONDER = Boolean.parseBoolean(System.getProperty("chess.ponder", "true"));
+	private int expectedReply = Move.NONE;
+	private boolean pondering;
+
+	// Analysis: -Dchess.multipv=k shows the engine's k best lines, live, beside the board. On the
+	// human's turn the engine analyses the position on the board instead of pondering a reply.
+	// The search thread formats each iteration into a new array; painting only reads the latest.
+	private static final int ANALYSIS_LINES = Math.min(Integer.getInteger("chess.multipv", 0), Search.MAX_MULTI_PV);
+	private static final int ANALYSIS_LINE_CHARS = 36;
+	private static final int ANALYSIS_LINE_HEIGHT = 16;
+	private static final String[] NO_ANALYSIS = new String[0];
+	private volatile String[] analysisText = NO_ANALYSIS;
+	private int analysedColor; // side to move of the searched position, for White-relative scores
+
+	// Opening book: -Dchess.book names a Polyglot .bin file; the engine plays from it and the
+	// book moves of the position are highlighted. Replaced, never modified, after each move.
+	private static final String BOOK_FILE = System.getProperty("chess.book");
+	private PolyglotBook book;
+	private volatile int[] bookMoves = new int[0];
+
+	// Endgame tablebase: -Dchess.tablebase names a file written by engine.TablebaseGenerator; the
+	// engine plays known endings from it and checkmate detection looks them up
+	private static final String TABLEBASE_FILE = System.getProperty("chess.tablebase");
+	private Tablebase tablebase;
+
+	// Highlight colors
+	private static final Color SELECTED_COLOR = new Color(255, 255, 0, 100);  // Semi-transparent yellow
+	private static final Color LEGAL_TARGET_COLOR = new Color(100, 180, 255, 80);  // Semi-transparent light blue
+	private static final Color CHECK_COLOR = new Color(255, 0, 0, 100);  // Semi-transparent red
+	private static final Color BOOK_MOVE_COLOR = new Color(0, 200, 0, 70);  // Semi-transparent green
+	private static final Color ANALYSIS_BACKGROUND = new Color(0, 0, 0, 120);  // Semi-transparent black
 
 	// Color Constants
 	private static final int WHITE = 0;
@@ -57,7 +122,7 @@ public class GamePanel extends JPanel implements Runnable {
 	private int startRow;
 
 	// Game state variables
-	private int gameState = GameState.getOngiong(); //stores the current state
+	private int gameState = GameState.getOngoing(); //stores the current state
 	private boolean gameOver = false; // true = game ends
 	private String statusMessage = ""; //store messages
 
@@ -71,6 +136,96 @@ public class GamePanel extends JPanel implements Runnable {
 
 		setPieces(); //set pieces in further (initializes all pieces)
 		copyPieces(pieces, simPieces);// copy pieces for simulate
+		position.setFromPieces(simPieces, currentColor); // build the bitboards once
+		loadEngineNetwork();
+		loadBook();
+		loadTablebase();
+		setUpAnalysis();
+	}
+
+	private void setUpAnalysis() {
+		if (ANALYSIS_LINES <= 0) {
+			return;
+		}
+		engine.setMultiPv(ANALYSIS_LINES);
+		engine.setListener(this::showAnalysis);
+	}
+
+	// Runs on the search thread: formats the iteration for paintComponent and publishes it
+	private void showAnalysis(SearchResult[] lines) {
+		SearchResult best = lines[0];
+		String[] text = new String[lines.length + 1];
+		text[0] = "Depth " + best.getDepth() + "  " + best.getNodes() / 1000 + "k nodes  " + best.getElapsedMillis() + " ms";
+		for (int i = 0; i < lines.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(i + 1).append(". ").append(formatScore(lines[i], analysedColor));
+			for (int move : lines[i].getPv()) {
+				String uci = Move.toUci(move);
+				if (sb.length() + 1 + uci.length() > ANALYSIS_LINE_CHARS) {
+					break;
+				}
+				sb.append(' ').append(uci);
+			}
+			text[i + 1] = sb.toString();
+		}
+		analysisText = text;
+	}
+
+	// The score from White's point of view: +0.35 in pawns, or #3 / #-3 for mate in moves
+	private static String formatScore(SearchResult line, int sideToMove) {
+		int score = sideToMove == WHITE ? line.getScore() : -line.getScore();
+		if (line.isMateScore()) {
+			int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+			return "#" + (score > 0 ? moves : -moves);
+		}
+		return String.format("%+.2f", score / 100.0);
+	}
+
+	private void loadTablebase() {
+		if (TABLEBASE_FILE == null) {
+			return;
+		}
+		try {
+			tablebase = Tablebase.open(Path.of(TABLEBASE_FILE));
+			engine.setTablebase(tablebase);
+		} catch (IOException e) {
+			System.err.println("Cannot open tablebase: " + e.getMessage());
+		}
+	}
+
+	private void loadBook() {
+		if (BOOK_FILE == null) {
+			return;
+		}
+		try {
+			book = PolyglotBook.open(Path.of(BOOK_FILE));
+			engine.setBook(book);
+		} catch (IOException e) {
+			System.err.println("Cannot open opening book: " + e.getMessage());
+		}
+		updateBookMoves();
+	}
+
+	// Looks up the book moves of the new position for the highlight
+	private void updateBookMoves() {
+		if (book == null) {
+			return;
+		}
+		int[] moves = new int[PolyglotBook.MAX_ENTRIES];
+		int count = book.probe(position, moves, new int[PolyglotBook.MAX_ENTRIES]);
+		bookMoves = Arrays.copyOf(moves, count);
+	}
+
+	// Switches the engine to the network evaluation when a network file is configured
+	private void loadEngineNetwork() {
+		if (ENGINE_NETWORK == null) {
+			return;
+		}
+		try {
+			engine.setNetwork(NnueNetwork.load(Path.of(ENGINE_NETWORK)));
+		} catch (IOException e) {
+			System.err.println("Cannot load network, using the standard evaluation: " + e.getMessage());
+		}
 	}
 
 	//Launching the Game
@@ -122,6 +277,80 @@ public class GamePanel extends JPanel implements Runnable {
 		pieces.add(new King(BLACK, 4, 0));
 	}
 
+	/**
+	 * Replaces the current game with the position described by a FEN string.
+	 * Used to set up test and benchmark positions.
+	 */
+	public synchronized void loadFen(String fen) {
+		stopPondering();
+		expectedReply = Move.NONE;
+		analysisText = NO_ANALYSIS;
+		position.setFromFen(fen);
+		pieces.clear();
+
+		long occupied = position.occupied();
+		while (occupied != 0) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			int code = position.pieceAt(square);
+			int color = BitboardPosition.colorOfCode(code);
+			int col = BitboardPosition.colOf(square);
+			int row = BitboardPosition.rowOf(square);
+			Piece piece;
+			switch (BitboardPosition.typeOfCode(code)) {
+				case BitboardPosition.PAWN:
+					piece = new Pawn(color, col, row);
+					break;
+				case BitboardPosition.KNIGHT:
+					piece = new Knight(color, col, row);
+					break;
+				case BitboardPosition.BISHOP:
+					piece = new Bishop(color, col, row);
+					break;
+				case BitboardPosition.ROOK:
+					piece = new Rook(color, col, row);
+					break;
+				case BitboardPosition.QUEEN:
+					piece = new Queen(color, col, row);
+					break;
+				default:
+					piece = new King(color, col, row);
+			}
+			if (!isUnmoved(piece)) {
+				piece.updatePosition(); // sets the piece's hasMoved flag
+			}
+			pieces.add(piece);
+		}
+		copyPieces(pieces, simPieces);
+
+		currentColor = position.getSideToMove();
+		activeP = null;
+		gameState = GameState.getOngoing();
+		gameOver = false;
+		statusMessage = "";
+		evaluateGameStatus();
+		updateBookMoves();
+	}
+
+	// Whether a piece loaded from a FEN can still make its first-move specials
+	private boolean isUnmoved(Piece piece) {
+		int rights = position.getCastlingRights();
+		int homeRow = piece.getColor() == WHITE ? 7 : 0;
+		int kingSide = piece.getColor() == WHITE ? BitboardPosition.WHITE_KINGSIDE : BitboardPosition.BLACK_KINGSIDE;
+		int queenSide = piece.getColor() == WHITE ? BitboardPosition.WHITE_QUEENSIDE : BitboardPosition.BLACK_QUEENSIDE;
+		if (piece instanceof Pawn) {
+			return piece.getRow() == (piece.getColor() == WHITE ? 6 : 1);
+		}
+		if (piece instanceof King) {
+			return (rights & (kingSide | queenSide)) != 0;
+		}
+		if (piece instanceof Rook && piece.getRow() == homeRow) {
+			return (piece.getCol() == 7 && (rights & kingSide) != 0)
+					|| (piece.getCol() == 0 && (rights & queenSide) != 0);
+		}
+		return true;
+	}
+
 	//Helper method for Copying Chess Pieces(simulating moves)
 	private void copyPieces(ArrayList<Piece> source, ArrayList<Piece> target) {
 		target.clear();
@@ -151,7 +380,10 @@ public class GamePanel extends JPanel implements Runnable {
 		}
 	}
 
-	private void handlePawnPromotion(Pawn pawn) {
+	/**
+	 * Asks which piece a pawn promotes to and returns its bitboard piece type.
+	 */
+	private int choosePromotionType() {
 		String[] options = {"Queen", "Rook", "Bishop", "Knight"};
 		//Displays dialog asking
 		int choice = JOptionPane.showOptionDialog(
@@ -165,6 +397,20 @@ public class GamePanel extends JPanel implements Runnable {
 				options[0]
 		);
 
+		switch (choice) {
+			case 1: // Rook
+				return BitboardPosition.ROOK;
+			case 2: // Bishop
+				return BitboardPosition.BISHOP;
+			case 3: // Knight
+				return BitboardPosition.KNIGHT;
+			default: // Queen, also if dialog is closed
+				return BitboardPosition.QUEEN;
+		}
+	}
+
+	//Replaces a promoted pawn with its new piece in the piece list
+	private void handlePawnPromotion(Pawn pawn, int promotionType) {
 		//Initializes for the new promotion piece
 		Piece newPiece = null;
 		//current position
@@ -172,20 +418,17 @@ public class GamePanel extends JPanel implements Runnable {
 		int row = pawn.getRow();
 		int color = pawn.getColor();
 
-		switch (choice) {
-			case 0: // Queen
-				newPiece = new Queen(color, col, row);
-				break;
-			case 1: // Rook
+		switch (promotionType) {
+			case BitboardPosition.ROOK:
 				newPiece = new Rook(color, col, row);
 				break;
-			case 2: // Bishop
+			case BitboardPosition.BISHOP:
 				newPiece = new Bishop(color, col, row);
 				break;
-			case 3: // Knight
+			case BitboardPosition.KNIGHT:
 				newPiece = new Knight(color, col, row);
 				break;
-			default: // Default to Queen if dialog is closed
+			default:
 				newPiece = new Queen(color, col, row);
 		}
 
@@ -193,60 +436,151 @@ public class GamePanel extends JPanel implements Runnable {
 		simPieces.add(newPiece); // new promoted piece
 	}
 
-	//method continuously updates the game state
-	private void update() {
-		if (gameOver) {
-			// Game is over, no more moves allowed
-			if (mouse.isClicked()) {
-				mouse.resetClick();
-			}
-			return;
+	/**
+	 * Packs a move of a GUI piece into the engine's move encoding (see engine.Move).
+	 * Pass BitboardPosition.NO_PIECE as promotionType for non-promotion moves.
+	 */
+	private int toMove(Piece piece, int targetCol, int targetRow, int promotionType) {
+		int from = BitboardPosition.square(piece.getCol(), piece.getRow());
+		int to = BitboardPosition.square(targetCol, targetRow);
+		boolean capture = position.isOccupied(to);
+
+		if (promotionType != BitboardPosition.NO_PIECE) {
+			return Move.createPromotion(from, to, promotionType, capture);
+		}
+		if (piece instanceof King && Math.abs(targetCol - piece.getCol()) == 2) {
+			return Move.create(from, to, targetCol > piece.getCol() ? Move.KING_CASTLE : Move.QUEEN_CASTLE);
+		}
+		if (piece instanceof Pawn && Math.abs(targetRow - piece.getRow()) == 2) {
+			return Move.create(from, to, Move.DOUBLE_PUSH);
 		}
+		// A pawn moving diagonally onto an empty square takes en passant
+		if (piece instanceof Pawn && targetCol != piece.getCol() && !capture) {
+			return Move.create(from, to, Move.EN_PASSANT);
+		}
+		return Move.create(from, to, capture ? Move.CAPTURE : Move.QUIET);
+	}
 
-		// First, check if we need to automatically capture a king who took a protected piece
-		autoCaptureFoolishKing();
+	private static boolean isPromotionRow(Piece piece, int targetRow) {
+		return piece instanceof Pawn && targetRow == (piece.getColor() == WHITE ? 0 : 7);
+	}
 
-		// If the game became over after auto-capturing, return
-		if (gameOver) {
-			return;
+	private static Piece findPiece(int col, int row) {
+		for (Piece p : simPieces) {
+			if (p.getCol() == col && p.getRow() == row) {
+				return p;
+			}
 		}
+		return null;
+	}
 
-		// Check if a king has been captured
-		boolean whiteKingExists = false;
-		boolean blackKingExists = false;
+	/**
+	 * Plays a packed move on the board and mirrors it on the piece objects: captures
+	 * (en passant included), castling (the king moves its own rook) and promotion.
+	 * Then passes the turn and evaluates the new position.
+	 */
+	private void commitMove(Piece piece, int move) {
+		int col = BitboardPosition.colOf(Move.to(move));
+		int row = BitboardPosition.rowOf(Move.to(move));
+		// An en passant capture takes the pawn beside the mover, not the one on the target square
+		Piece captured = null;
+		if (Move.isCapture(move)) {
+			captured = findPiece(col, Move.isEnPassant(move) ? piece.getRow() : row);
+		}
 
-		//checks the king is still exist
-		for (Piece p : simPieces) {
-			if (p instanceof King) {
-				if (p.getColor() == WHITE) {
-					whiteKingExists = true;
-				}
-				else {
-					blackKingExists = true;
-				}
+		// The paint thread tests moves on the same board, so commit under its lock
+		synchronized (this) {
+			position.makeMove(move);
+
+			// Remove the captured piece safely
+			if (captured != null) {
+				simPieces.remove(captured);// remove from the arraylist
+			}
+
+			// Move the selected piece
+			piece.setCol(col);
+			piece.setRow(row);
+			piece.setX(col * Board.SQUARE_SIZE);
+			piece.setY(row * Board.SQUARE_SIZE);
+			piece.updatePosition();
+
+			if (Move.isPromotion(move)) {
+				handlePawnPromotion((Pawn) piece, Move.promotionType(move));
 			}
 		}
 
-		// If Black King is missing, the game should end immediately
-		if (!whiteKingExists) {
-			gameState = GameState.getCheckMate();
-			currentColor = BLACK; // Set black as winner
-			gameOver = true;
-			statusMessage = "Checkmate! Black wins!";
-			return;
-			//If Black King is missing, the game should end immediately
+		// Switch turn(ternary operator)condition ? valueIfTrue : valueIfFalse;
+		currentColor = (currentColor == WHITE) ? BLACK : WHITE;
+		activeP = null; //no piece is currently selected
+
+		// Work out check, checkmate, stalemate and king capture once for the new position;
+		// idle frames only read the cached result
+		evaluateGameStatus();
+		updateBookMoves();
+		analysisText = NO_ANALYSIS; // no search is running; the lines were for the last position
+	}
+
+	private boolean isEngineTurn() {
+		return isEngineSide(currentColor);
+	}
+
+	private static boolean isEngineSide(int color) {
+		return ENGINE_SIDES.equals("both") || ENGINE_SIDES.equals(color == WHITE ? "white" : "black");
+	}
+
+	// Starts the engine searching on the human's time; it copies the board before returning
+	private synchronized void startPondering() {
+		analysedColor = currentColor;
+		engine.startPonder(position, ANALYSIS_LINES > 0 ? Move.NONE : expectedReply);
+		pondering = true;
+	}
+
+	// Cancels pondering; what it found stays in the engine's transposition table
+	private synchronized void stopPondering() {
+		if (pondering) {
+			engine.stopPonder();
+			pondering = false;
 		}
-		else if (!blackKingExists) {
-			gameState = GameState.getCheckMate();
-			currentColor = WHITE; // Set white as winner
-			gameOver = true;
-			statusMessage = "Checkmate! White wins!";
+	}
+
+	/**
+	 * Lets the engine choose a move for the side to move and plays it. The engine searches
+	 * its own copy of the board, so painting is not held up while it thinks.
+	 */
+	private void playEngineMove() {
+		analysedColor = currentColor;
+		SearchResult result = engine.think(position, SearchLimits.moveTime(ENGINE_MOVE_TIME));
+		System.out.println("Engine: " + result);
+		int[] pv = result.getPv();
+		expectedReply = pv.length > 1 ? pv[1] : Move.NONE;
+		int move = result.getBestMove();
+		if (move == Move.NONE) {
+			return; // no legal move; evaluateGameStatus has already ended the game
+		}
+		commitMove(findPiece(BitboardPosition.colOf(Move.from(move)), BitboardPosition.rowOf(Move.from(move))), move);
+	}
+
+	//method continuously updates the game state
+	private void update() {
+		if (gameOver) {
+			// Game is over, no more moves allowed
+			if (mouse.isClicked()) {
+				mouse.resetClick();
+			}
+			stopPondering();
 			return;
 		}
 
-		// If we have a new game state (check, checkmate), update the message
-		if (gameState != GameState.getOngiong()) {
-			updateStatusMessage();
+		// The computer plays its side from the game loop; painting carries on meanwhile
+		if (isEngineTurn()) {
+			playEngineMove();
+			if (mouse.isClicked()) {
+				mouse.resetClick(); // ignore clicks made while the engine was thinking
+			}
+			return;
+		}
+		if (!pondering && (ANALYSIS_LINES > 0 || (ENGINE_PONDER && isEngineSide(1 - currentColor)))) {
+			startPondering();
 		}
 
 		// Process Mouse Clicks
@@ -283,138 +617,22 @@ public class GamePanel extends JPanel implements Runnable {
 				}
 				//Check if move is valid
 				else if (board.isValidPosition(col, row) && isLegalMove(activeP, col, row)) {
-					// Check if the target square is occupied
-					Piece pieceAtTarget = null;
-					for (Piece p : simPieces) {
-						if (p != activeP && p.getCol() == col && p.getRow() == row) {
-							if (p.getColor() == activeP.getColor()) {
-								// Clicked on another piece of same color - change selection
-								activeP = p;
-								startCol = p.getCol();
-								startRow = p.getRow();
-								activeP.setPreCol(startCol);
-								activeP.setPreRow(startRow);
-								return;
-							}
-							pieceAtTarget = p;
-							break;
-						}
-					}
-
-
-					// Special case: Check if a king is capturing a protected piece
-					boolean capturedProtectedPiece = false;
-					if (activeP instanceof King && pieceAtTarget != null) {
-						// Check if the piece is protected
-						for (Piece defender : simPieces) {
-							// Skip pieces of same color as king and the piece being captured
-							if (defender.getColor() == activeP.getColor() || defender == pieceAtTarget) {
-								continue;
-							}
-
-							// Can this piece protect the target?
-							if (defender.canMove(col, row)) {
-								// For pieces that need a clear path, check if the path is clear
-								if (!(defender instanceof Knight)) {
-									// Check if path is blocked by another piece
-									if (defender.checkPath(col, row)) {
-										continue; // Path is blocked
-									}
-								}
-
-								// The piece is protected! But we'll allow the king to capture it anyway
-								capturedProtectedPiece = true;
-								break;
-							}
-						}
-					}
-
-					// Remove the captured piece safely
-					if (pieceAtTarget != null) {
-
-						simPieces.remove(pieceAtTarget);// remove from the arraylist
-					}
-
-					// Move the selected piece
-					activeP.setCol(col);
-					activeP.setRow(row);
-					activeP.setX(col * Board.SQUARE_SIZE);
-					activeP.setY(row * Board.SQUARE_SIZE);
-					activeP.updatePosition();
-
-					// Check for pawn promotion
-					if (activeP instanceof Pawn) {
-						Pawn pawn = (Pawn) activeP;
-						if (pawn.canBePromoted()) {
-							handlePawnPromotion(pawn);
-						}
-					}
-
-					// Switch turn(ternary operator)condition ? valueIfTrue : valueIfFalse;
-					currentColor = (currentColor == WHITE) ? BLACK : WHITE;
-					activeP = null; //no piece is currently selected
-
-
-					// If a king captured a protected piece, we'll let the auto-capture
-					// function handle it on the next update cycle - no need to
-					// check for checkmate here
-
-					// Only check for check/checkmate if we didn't just capture a protected piece
-					if (!capturedProtectedPiece) {
-						// to check if king is under attack
-						boolean kingInCheck = GameState.isKingInCheck(simPieces, currentColor);
-
-						if (kingInCheck) {
-
-							// Use the improved checkmate detection
-							if (isCheckmate()) {
-								gameState = GameState.getCheckMate();
-								gameOver = true;
-								System.out.println("CHECKMATE detected!");
-							}
-							else {
-								gameState = GameState.getCheck();
-								System.out.println("CHECK - King can still escape");
-							}
-						}
-						else {
-							// Not in check, but check
-							boolean hasLegalMoves = false;
-
-							// Check if any piece has a legal move
-							for (Piece p : simPieces) {
-								if (p.getColor() == currentColor) {
-									for (int r = 0; r < 8; r++) {
-										for (int c = 0; c < 8; c++) {
-											if (isLegalMove(p, c, r)) {
-												hasLegalMoves = true;
-												break;
-											}
-										}
-										if (hasLegalMoves) break;
-									}
-									if (hasLegalMoves) break;
-								}
-							}
-
-							if (hasLegalMoves) {
-								gameState = GameState.getOngiong();
-							}
-							else {
-								gameState = GameState.getStalemate();
-								gameOver = true;
-								System.out.println("STALEMATE - no legal moves but not in check");
-							}
-						}
+					// Clicked on another piece of same color - change selection
+					Piece pieceAtTarget = findPiece(col, row);
+					if (pieceAtTarget != null && pieceAtTarget.getColor() == activeP.getColor()) {
+						activeP = pieceAtTarget;
+						startCol = pieceAtTarget.getCol();
+						startRow = pieceAtTarget.getRow();
+						activeP.setPreCol(startCol);
+						activeP.setPreRow(startRow);
+						return;
 					}
 
-					// Update status message based on new game state
-					updateStatusMessage();
-
-					// If game is over, print message
-					if (gameOver) {
-						System.out.println("GAME OVER: " + (gameState == GameState.getCheckMate() ? "Checkmate" : "Stalemate"));
-					}
+					// Check for pawn promotion (ask before the move is committed)
+					int promotionType = isPromotionRow(activeP, row)
+							? choosePromotionType() : BitboardPosition.NO_PIECE;
+					stopPondering(); // the engine's turn comes next
+					commitMove(activeP, toMove(activeP, col, row, promotionType));
 				} else {
 					// Invalid move - either clicked elsewhere on board or clicked invalid destination
 					// Check if clicked on another piece of same color
@@ -439,6 +657,66 @@ public class GamePanel extends JPanel implements Runnable {
 		}
 	}
 
+	/**
+	 * Evaluates the game status for the side to move and caches it in gameState, gameOver
+	 * and statusMessage. Called once after every committed move (and when a position is
+	 * loaded) instead of being polled every frame.
+	 */
+	private void evaluateGameStatus() {
+		// A missing king ends the game at once
+		if (position.kingSquare(WHITE) == BitboardPosition.NO_SQUARE) {
+			gameState = GameState.getCheckMate();
+			currentColor = BLACK; // Set black as winner
+			gameOver = true;
+			statusMessage = "Checkmate! Black wins!";
+			return;
+		}
+		if (position.kingSquare(BLACK) == BitboardPosition.NO_SQUARE) {
+			gameState = GameState.getCheckMate();
+			currentColor = WHITE; // Set white as winner
+			gameOver = true;
+			statusMessage = "Checkmate! White wins!";
+			return;
+		}
+
+		// to check if king is under attack
+		if (GameState.isKingInCheck(position, currentColor)) {
+			// Use the improved checkmate detection
+			if (isCheckmate()) {
+				gameState = GameState.getCheckMate();
+				gameOver = true;
+				System.out.println("CHECKMATE detected!");
+			}
+			else {
+				gameState = GameState.getCheck();
+			}
+		}
+		else {
+			// Not in check, but check whether the side to move has any legal move
+			boolean hasLegalMoves;
+			synchronized (this) {
+				hasLegalMoves = MoveGenerator.generateLegal(position, moveBuffer, 0) > 0;
+			}
+
+			if (hasLegalMoves) {
+				gameState = GameState.getOngoing();
+			}
+			else {
+				gameState = GameState.getStalemate();
+				gameOver = true;
+				System.out.println("STALEMATE - no legal moves but not in check");
+			}
+		}
+
+		// Update status message based on new game state
+		updateStatusMessage();
+
+		// If game is over, print message
+		if (gameOver) {
+			System.out.println("GAME OVER: " + (gameState == GameState.getCheckMate() ? "Checkmate" : "Stalemate"));
+		}
+	}
+
 	//helper method
 	private void updateStatusMessage() {
 		//determines the color
@@ -470,34 +748,43 @@ public class GamePanel extends JPanel implements Runnable {
 		// Draw board
 		board.draw(g2);
 
+		// Highlight the from and to squares of the opening book moves
+		if (!gameOver) {
+			g2.setColor(BOOK_MOVE_COLOR);
+			for (int move : bookMoves) {
+				int from = Move.from(move);
+				int to = Move.to(move);
+				g2.fillRect(BitboardPosition.colOf(from) * Board.SQUARE_SIZE, BitboardPosition.rowOf(from) * Board.SQUARE_SIZE,
+						Board.SQUARE_SIZE, Board.SQUARE_SIZE);
+				g2.fillRect(BitboardPosition.colOf(to) * Board.SQUARE_SIZE, BitboardPosition.rowOf(to) * Board.SQUARE_SIZE,
+						Board.SQUARE_SIZE, Board.SQUARE_SIZE);
+			}
+		}
+
 		// If a piece is selected, highlight its position and valid moves
-		if (activeP != null) {
+		Piece selected = activeP; // the game thread may deselect while we paint
+		if (selected != null) {
 			// Highlight selected piece position with yellow
-			g2.setColor(new Color(255, 255, 0, 100));  // Semi-transparent yellow
-			g2.fillRect(activeP.getCol() * Board.SQUARE_SIZE, activeP.getRow() * Board.SQUARE_SIZE,
+			g2.setColor(SELECTED_COLOR);
+			g2.fillRect(selected.getCol() * Board.SQUARE_SIZE, selected.getRow() * Board.SQUARE_SIZE,
 					Board.SQUARE_SIZE, Board.SQUARE_SIZE);
 
-			// Highlight valid moves with light blue
-			for (int row = 0; row < 8; row++) {
-				for (int col = 0; col < 8; col++) {
-					if (isLegalMove(activeP, col, row)) {
-						g2.setColor(new Color(100, 180, 255, 80));  // Semi-transparent light blue
-						g2.fillRect(col * Board.SQUARE_SIZE, row * Board.SQUARE_SIZE,
-								Board.SQUARE_SIZE, Board.SQUARE_SIZE);
-					}
-				}
+			// Highlight valid moves with light blue, straight from the cached mask
+			g2.setColor(LEGAL_TARGET_COLOR);
+			for (long targets = getLegalTargets(selected); targets != 0; targets &= targets - 1) {
+				int square = Long.numberOfTrailingZeros(targets);
+				g2.fillRect(BitboardPosition.colOf(square) * Board.SQUARE_SIZE, BitboardPosition.rowOf(square) * Board.SQUARE_SIZE,
+						Board.SQUARE_SIZE, Board.SQUARE_SIZE);
 			}
 		}
 
 		// Highlight king in red if it's in check or checkmate
 		if (gameState == GameState.getCheck() || gameState == GameState.getCheckMate()) {
-			for (Piece p : simPieces) {
-				if (p instanceof King && p.getColor() == currentColor) {
-					g2.setColor(new Color(255, 0, 0, 100));  // Semi-transparent red
-					g2.fillRect(p.getCol() * Board.SQUARE_SIZE, p.getRow() * Board.SQUARE_SIZE,
-							Board.SQUARE_SIZE, Board.SQUARE_SIZE);
-					break;
-				}
+			int kingSquare = position.kingSquare(currentColor);
+			if (kingSquare != BitboardPosition.NO_SQUARE) {
+				g2.setColor(CHECK_COLOR);
+				g2.fillRect(BitboardPosition.colOf(kingSquare) * Board.SQUARE_SIZE, BitboardPosition.rowOf(kingSquare) * Board.SQUARE_SIZE,
+						Board.SQUARE_SIZE, Board.SQUARE_SIZE);
 			}
 		}
 
@@ -526,6 +813,21 @@ public class GamePanel extends JPanel implements Runnable {
 			}
 		}
 
+		// Draw the engine's analysis lines between the turn labels
+		String[] analysis = analysisText; // one read: the search thread replaces the array
+		if (analysis.length > 0) {
+			int analysisX = 8 * Board.SQUARE_SIZE + 10;
+			int analysisY = 280;
+			int shown = Math.min(analysis.length, (500 - analysisY) / ANALYSIS_LINE_HEIGHT);
+			g2.setColor(ANALYSIS_BACKGROUND);
+			g2.fillRect(analysisX, analysisY, WIDTH - analysisX - 10, shown * ANALYSIS_LINE_HEIGHT + 8);
+			g2.setColor(Color.WHITE);
+			g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+			for (int i = 0; i < shown; i++) {
+				g2.drawString(analysis[i], analysisX + 6, analysisY + (i + 1) * ANALYSIS_LINE_HEIGHT);
+			}
+		}
+
 		g2.setColor(Color.WHITE);
 		g2.setFont(new Font("Boo Anitqua", Font.PLAIN, 40));
 		if (currentColor == WHITE) {
@@ -538,193 +840,71 @@ public class GamePanel extends JPanel implements Runnable {
 	// in king class
 	public static boolean isKingInCheck(int kingColor) {
 
-		return GameState.isKingInCheck(simPieces, kingColor);
+		return GameState.isKingInCheck(position, kingColor);
 	}
 
 
 
 	/**
-	 * Modified isLegalMove method to allow kings to capture protected pieces,
-	 * which will then result in the king being captured on the next turn
+	 * Legal destinations of the piece as a square mask (bit row * 8 + col).
+	 * Worked out once per selection and reused by painting and clicks until the position changes,
+	 * which the position key reveals.
 	 */
-	private boolean isLegalMove(Piece piece, int targetCol, int targetRow) {
-		// First, it checks if the move is valid according to the specific
-		// chess piece's movement rules by calling the piece's canMove method
-		if (!piece.canMove(targetCol, targetRow)) {
-			return false;
+	private synchronized long getLegalTargets(Piece piece) {
+		if (piece != legalTargetsPiece || position.getKey() != legalTargetsKey) {
+			legalTargets = computeLegalTargets(piece);
+			legalTargetsPiece = piece;
+			legalTargetsKey = position.getKey();
 		}
+		return legalTargets;
+	}
 
-		// Check for same-color piece at target
-		for (Piece p : simPieces) {
-			if (p != piece && p.getCol() == targetCol && p.getRow() == targetRow && p.getColor() == piece.getColor()) {
-				return false;
-			}
-		}
-
-
-
-
-		// Standard check for all non-king pieces:
-		// Save the original position
-		int originalCol = piece.getCol();
-		int originalRow = piece.getRow();
-
-		// Find any piece at the target position to be captured
-		Piece capturedPiece = null;
-		for (Piece p : simPieces) {
-			if (p != piece && p.getCol() == targetCol && p.getRow() == targetRow) {
-				capturedPiece = p;
-				break;
+	// One legal move generation for the whole board, the same rules game-over detection and
+	// the engine use, en passant included
+	private long computeLegalTargets(Piece piece) {
+		int from = BitboardPosition.square(piece.getCol(), piece.getRow());
+		long targets = 0;
+		int count = MoveGenerator.generateLegal(position, moveBuffer, 0);
+		for (int i = 0; i < count; i++) {
+			if (Move.from(moveBuffer[i]) == from) {
+				targets |= BitboardPosition.bit(Move.to(moveBuffer[i]));
 			}
 		}
-
-		// Create a copy of the pieces list for simulation
-		ArrayList<Piece> simulatedPieces = new ArrayList<>(simPieces);
-
-		// Temporarily remove captured piece if it exists
-		if (capturedPiece != null) {
-			simulatedPieces.remove(capturedPiece);
-		}
-
-		// Temporarily move the piece in our simulation
-		piece.setCol(targetCol);
-		piece.setRow(targetRow);
-
-		// Check if this move would leave our king in check
-		boolean kingInCheck = GameState.isKingInCheck(simulatedPieces, piece.getColor());
-
-		// Restore the original position
-		piece.setCol(originalCol);
-		piece.setRow(originalRow);
-
-		// The move is legal only if it doesn't leave the king in check
-		return !kingInCheck;
+		return targets;
 	}
 
 	/**
-	 * Special method to accurately determine if the game is in checkmate
+	 * Whether the piece may move to the square under the full rules: the move generator's
+	 * legal moves, so a move that leaves the own king in check is refused.
+	 * Answered from the piece's cached legal-target mask, so repeated calls cost one AND.
 	 */
-	private boolean isCheckmate() {
-		// First, verify that the current player's king is in check
-		boolean kingInCheck = GameState.isKingInCheck(simPieces, currentColor);
-		if (!kingInCheck) {
-			return false; // Not checkmate if the king isn't in check
-		}
-
-		System.out.println("Checking for checkmate - king is in check");
-
-		// Find the king
-		King king = null;
-		for (Piece p : simPieces) {
-			if (p instanceof King && p.getColor() == currentColor) {
-				king = (King) p;
-				break;
-			}
-		}
-
-		if (king == null) {
-			System.err.println("ERROR: King not found for color " + currentColor);
-			return false;
-		}
-
-		// Check all possible king moves including captures
-		int kingCol = king.getCol();
-		int kingRow = king.getRow();
-
-		// Try all 8 possible king moves
-		int[] dx = {-1, -1, -1, 0, 0, 1, 1, 1};
-		int[] dy = {-1, 0, 1, -1, 1, -1, 0, 1};
-
-		for (int i = 0; i < 8; i++) {
-			int newCol = kingCol + dx[i];
-			int newRow = kingRow + dy[i];
-
-			// Skip moves outside the board
-			if (newCol < 0 || newCol > 7 || newRow < 0 || newRow > 7) {
-				continue;
-			}
-
-			System.out.println("Checking if king can move to " + newCol + "," + newRow);
-
-			// Check if this move is legal
-			if (isLegalMove(king, newCol, newRow)) {
-				System.out.println("King can escape check by moving to " + newCol + "," + newRow);
-				return false; // King can escape, not checkmate
-			}
-		}
-
-		// Check if any piece can block the check or capture the attacking piece
-		for (Piece p : simPieces) {
-			// Only consider current player's pieces
-			if (p.getColor() != currentColor || p instanceof King) {
-				continue;
-			}
-
-			for (int row = 0; row < 8; row++) {
-				for (int col = 0; col < 8; col++) {
-					if (isLegalMove(p, col, row)) {
-						System.out.println("Piece " + p.getClass().getSimpleName() +
-								" at " + p.getCol() + "," + p.getRow() +
-								" can block/capture by moving to " + col + "," + row);
-						return false; // A piece can block or capture, not checkmate
-					}
-				}
-			}
-		}
-
-		// If we get here, no escape moves were found - it's checkmate
-		System.out.println("CHECKMATE confirmed - no legal moves found");
-		return true;
+	private boolean isLegalMove(Piece piece, int targetCol, int targetRow) {
+		return (getLegalTargets(piece) & BitboardPosition.bit(BitboardPosition.square(targetCol, targetRow))) != 0;
 	}
 
-
-
 	/**
-	 * Add this method to your GamePanel class to automatically capture kings
-	 * that have captured protected pieces
+	 * Special method to accurately determine if the game is in checkmate.
+	 * The king must be in check and the legal move generator must find no moves.
 	 */
-	private void autoCaptureFoolishKing() {
-		// Find opponent's king
-		King opponentKing = null;
-		for (Piece p : simPieces) {
-			if (p instanceof King && p.getColor() != currentColor) {
-				opponentKing = (King)p;
-				break;
-			}
+	private synchronized boolean isCheckmate() {
+		// First, verify that the current player's king is in check
+		if (!position.isInCheck(currentColor)) {
+			return false; // Not checkmate if the king isn't in check
 		}
 
-		if (opponentKing == null)
-			return;
-
-		// Check if any of our pieces can capture the opponent's king
-		for (Piece p : simPieces) {
-			if (p.getColor() == currentColor && p.canMove(opponentKing.getCol(), opponentKing.getRow())) {
-				// Knights don't need path checking since they can jump
-				if (p instanceof Knight || !p.checkPath(opponentKing.getCol(), opponentKing.getRow())) {
-					captureKing(p, opponentKing);
-					break;
-				}
+		// A known ending answers without generating moves: mated in 0 plies is checkmate
+		if (tablebase != null) {
+			int score = tablebase.probe(position);
+			if (score != Tablebase.UNKNOWN) {
+				return score == -Search.MATE;
 			}
 		}
-	}
 
-	// New helper method to extract functionality
-	private void captureKing(Piece capturingPiece, King targetKing) {
-		// Capture the king
-		simPieces.remove(targetKing);
+		// Checkers, pins and evasion squares are worked out once for the whole position
+		return MoveGenerator.generateLegal(position, moveBuffer, 0) == 0;
+	}
 
-		// Move the capturing piece to the king's position
-		capturingPiece.setCol(targetKing.getCol());
-		capturingPiece.setRow(targetKing.getRow());
-		capturingPiece.setX(targetKing.getCol() * Board.SQUARE_SIZE);
-		capturingPiece.setY(targetKing.getRow() * Board.SQUARE_SIZE);
-		capturingPiece.updatePosition();
 
-		// End the game
-		gameOver = true;
-		gameState = GameState.getCheckMate();
-		statusMessage = (currentColor == GamePanel.WHITE ? "White" : "Black") + " wins by mate!";
-	}
 
 	// Add this method to your GamePanel class
 
@@ -1,10 +1,10 @@
 package main;
 
+import engine.Attacks;
+import engine.BitboardPosition;
 import java.util.ArrayList;
 import piece.King;
-import piece.Knight;
 import piece.Piece;
-import piece.Rook;
 
 public class GameState {
     public static final int ONGOING = 0;
@@ -12,90 +12,53 @@ public class GameState {
     public static final int CHECKMATE = 2;
     public static final int STALEMATE = 3;
 
+    public static int getOngoing() { return ONGOING; }
+    public static int getCheck() { return CHECK; }
+    public static int getCheckMate() { return CHECKMATE; }
+    public static int getStalemate() { return STALEMATE; }
 
+    /**
+     * Checks if the king of the specified color is in check.
+     * Starts from the king square cached by the board and probes the knight, pawn and king
+     * squares and the slider rays around it, so it takes a fixed number of table lookups
+     * and allocates nothing. A side without a king is never in check.
+     */
+    public static boolean isKingInCheck(BitboardPosition position, int kingColor) {
+        return position.isInCheck(kingColor);
+    }
 
     /**
-     * Enhanced method to check if the king of the specified color is in check
-     * This version safely handles collections to avoid ConcurrentModificationException
+     * Checks if the king of the specified color is in check on the board the piece list
+     * describes, which need not be the game's. Builds the occupancy from the list and
+     * looks up each opposing piece's attacks in the tables; allocates nothing.
      */
     public static boolean isKingInCheck(ArrayList<Piece> pieces, int kingColor) {
-        // Find the king of the specified color
-        King king = null;
+        long occupied = 0;
+        int kingSquare = BitboardPosition.NO_SQUARE;
         for (Piece p : pieces) {
+            int square = BitboardPosition.square(p.getCol(), p.getRow());
+            occupied |= BitboardPosition.bit(square);
             if (p instanceof King && p.getColor() == kingColor) {
-                king = (King) p;
-                break;
+                kingSquare = square;
             }
         }
-
-        if (king == null) {
-            System.err.println("ERROR: King not found for color " + kingColor);
-            return false; // Should never happen in a valid game
+        if (kingSquare == BitboardPosition.NO_SQUARE) {
+            return false;
         }
 
-        int kingCol = king.getCol();
-        int kingRow = king.getRow();
-
-        System.out.println("Checking if king at " + kingCol + "," + kingRow + " is in check");
-
-        // Check if any opponent's piece can capture the king
-        // Create a copy of the list to safely iterate
-        ArrayList<Piece> piecesCopy = new ArrayList<>(pieces);
-
-        for (Piece attacker : piecesCopy) {
-            // Skip pieces of our own color
-            if (attacker.getColor() == kingColor) {
+        long king = BitboardPosition.bit(kingSquare);
+        for (Piece p : pieces) {
+            if (p.getColor() == kingColor) {
                 continue;
             }
-
-            // Check if this piece can move to the king's position
-            if (attacker.canMove(kingCol, kingRow)) {
-                // Knights don't need path checking
-                if (attacker instanceof Knight) {
-                    System.out.println("King is in check by knight at " +
-                            attacker.getCol() + "," + attacker.getRow());
-                    return true;
-                }
-
-                // For all other pieces, check if the path to the king is clear
-                boolean pathBlocked = false;
-
-                // Calculate direction from attacker to king
-                int colDirection = Integer.compare(kingCol, attacker.getCol());
-                int rowDirection = Integer.compare(kingRow, attacker.getRow());
-
-                // Start checking from the square after the attacker
-                int currentCol = attacker.getCol() + colDirection;
-                int currentRow = attacker.getRow() + rowDirection;
-
-                // Check each square until we reach the king (exclusive)
-                while (currentCol != kingCol || currentRow != kingRow) {
-                    // Check if any piece is on this square
-                    for (Piece blockingPiece : piecesCopy) {
-                        if (blockingPiece.getCol() == currentCol && blockingPiece.getRow() == currentRow) {
-                            pathBlocked = true;
-                            break;
-                        }
-                    }
-
-                    if (pathBlocked) {
-                        break;
-                    }
-
-                    currentCol += colDirection;
-                    currentRow += rowDirection;
-                }
-
-                // If path is not blocked, the king is in check
-                if (!pathBlocked) {
-                    System.out.println("King is in check by " +
-                            attacker.getClass().getSimpleName() +
-                            " at " + attacker.getCol() + "," + attacker.getRow());
-                    return true;
-                }
+            int square = BitboardPosition.square(p.getCol(), p.getRow());
+            int type = BitboardPosition.typeOf(p);
+            long attacks = type == BitboardPosition.PAWN ? Attacks.pawnAttacks(p.getColor(), square)
+                    : Attacks.pieceAttacks(type, square, occupied);
+            if ((attacks & king) != 0) {
+                return true;
             }
         }
-
         return false;
     }
 
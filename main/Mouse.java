@@ -36,6 +36,18 @@ public class Mouse extends MouseAdapter {
 		y = e.getY();
 	}
 
+	public boolean isClicked() {
+		return clicked;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
 	// Method to reset the click state after it's been processed
 	public void resetClick() {
 		clicked = false;
@@ -1,13 +1,14 @@
 
 package piece;
 
+import engine.Attacks;
 import main.GamePanel;
 import main.Position;
 
 public class Bishop extends Piece {
     public Bishop(int color, int col, int row) {
         super(color, col, row);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-bishop"));
         }
         else {
@@ -16,7 +17,7 @@ public class Bishop extends Piece {
     }
     public Bishop(int color, Position position) {
         super(color, position);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-bishop"));
         }
         else {
@@ -32,20 +33,13 @@ public class Bishop extends Piece {
             return false;
         }
 
-        // Check if the move is a valid diagonal
-        boolean isValidMove = Math.abs(targetRow - getPreRow()) == Math.abs(targetCol - getPreCol());
-        if (!isValidMove) {
-            return false;
-        }
-
         // Check for piece of same color at target
-        for (Piece p : GamePanel.simPieces) {
-            if (p != this && p.getCol() == targetCol && p.getRow() == targetRow && p.getColor() == this.getColor()) {
-                return false;
-            }
+        if (isFriendlyAt(targetCol, targetRow)) {
+            return false;
         }
 
-        // Check if path is clear
-        return !checkPath(targetCol, targetRow);
+        // Look up the attacked squares for the current occupancy; blocked paths are already excluded
+        long attacks = Attacks.bishopAttacks(getPreSquare(), GamePanel.getPosition().occupied());
+        return containsSquare(attacks, targetCol, targetRow);
     }
 }
@@ -1,5 +1,7 @@
 package piece;
 
+import engine.Attacks;
+import engine.BitboardPosition;
 import main.GamePanel;
 import main.Position;
 
@@ -8,7 +10,7 @@ public class King extends Piece {
 
     public King(int color, int col, int row) {
         super(color, col, row);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-king"));
         }
         else {
@@ -21,7 +23,7 @@ public class King extends Piece {
      */
     public King(int color, Position position) {
         super(color, position);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-king"));
         }
         else {
@@ -41,10 +43,8 @@ public class King extends Piece {
         int rowDiff = Math.abs(targetRow - getPreRow());
 
         // Check for piece of same color at target
-        for (Piece p : GamePanel.simPieces) {
-            if (p != this && p.getCol() == targetCol && p.getRow() == targetRow && p.getColor() == this.getColor()) {
-                return false;
-            }
+        if (isFriendlyAt(targetCol, targetRow)) {
+            return false;
         }
 
         // Check for castling (king moves two squares horizontally)
@@ -54,9 +54,7 @@ public class King extends Piece {
         }
 
         // A king can move one square in any direction
-        // This means either colDiff or rowDiff can be 1, or both can be 1 (for diagonal)
-        // But neither can be greater than 1
-        return colDiff <= 1 && rowDiff <= 1 && (colDiff != 0 || rowDiff != 0);
+        return containsSquare(Attacks.kingAttacks(getPreSquare()), targetCol, targetRow);
     }
 
     private boolean canCastle(int targetCol) {
@@ -69,17 +67,15 @@ public class King extends Piece {
         boolean isKingSideCastling = targetCol > getPreCol();
         int rookCol = isKingSideCastling ? 7 : 0;
 
-        // Find the rook for castling
-        Rook rook = null;
-        for (Piece p : GamePanel.simPieces) {
-            if (p instanceof Rook && p.getColor() == this.getColor() && p.getCol() == rookCol && p.getRow() == this.getRow()) {
-                rook = (Rook) p;
-                break;
-            }
+        // Check that the rook is still on its home square and hasn't moved.
+        // The position's castling rights track exactly that, so no list scan is needed.
+        int right;
+        if (getColor() == GamePanel.getWhite()) {
+            right = isKingSideCastling ? BitboardPosition.WHITE_KINGSIDE : BitboardPosition.WHITE_QUEENSIDE;
+        } else {
+            right = isKingSideCastling ? BitboardPosition.BLACK_KINGSIDE : BitboardPosition.BLACK_QUEENSIDE;
         }
-
-        // Check if rook exists and hasn't moved
-        if (rook == null || rook.hasMoved()) {
+        if ((GamePanel.getPosition().getCastlingRights() & right) == 0) {
             return false;
         }
 
@@ -97,15 +93,10 @@ public class King extends Piece {
         for (int i = 1; i <= 2; i++) {
             int checkCol = getPreCol() + (direction * i);
 
-            // Check if this intermediate square is under attack
-            for (Piece attacker : GamePanel.simPieces) {
-                if (attacker.getColor() != this.getColor() && attacker.canMove(checkCol, getPreRow())) {
-                    // For pieces that need a clear path, check if the path is clear
-                    if (!(attacker instanceof Knight) && attacker.checkPath(checkCol, getPreRow())) {
-                        continue; // Path is blocked
-                    }
-                    return false; // Square is under attack
-                }
+            // Check if this intermediate square is under attack (attack table lookup)
+            int enemy = 1 - getColor();
+            if (GamePanel.getPosition().isSquareAttacked(BitboardPosition.square(checkCol, getPreRow()), enemy)) {
+                return false;
             }
         }
 
@@ -119,7 +110,7 @@ public class King extends Piece {
         int newRookCol = isKingSideCastling ? targetCol - 1 : targetCol + 1;
 
         // Find the rook for castling
-        for (Piece p : GamePanel.simPieces) {
+        for (Piece p : GamePanel.getSimPieces()) {
             if (p instanceof Rook && p.getColor() == this.getColor() && p.getCol() == rookCol && p.getRow() == this.getRow()) {
                 // Move the rook
                 p.setCol(newRookCol);
@@ -145,4 +136,7 @@ public class King extends Piece {
         }
     }
 
+    public boolean hasMoved() {
+        return hasMoved;
+    }
 }
@@ -1,12 +1,13 @@
 package piece;
 
+import engine.Attacks;
 import main.GamePanel;
 import main.Position;
 
 public class Knight extends Piece {
     public Knight(int color, int col, int row) {
         super(color, col, row);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-knight"));
         }
         else {
@@ -19,7 +20,7 @@ public class Knight extends Piece {
      */
     public Knight(int color, Position position) {
         super(color, position);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-knight"));
         }
         else {
@@ -34,16 +35,11 @@ public class Knight extends Piece {
         }
 
         // Check for piece of same color at target
-        for (Piece p : GamePanel.simPieces) {
-            if (p != this && p.getCol() == targetCol && p.getRow() == targetRow && p.getColor() == this.getColor()) {
-                return false;
-            }
+        if (isFriendlyAt(targetCol, targetRow)) {
+            return false;
         }
 
         // Knight moves in an L-shape: 2 squares in one direction and 1 square perpendicular
-        int rowDiff = Math.abs(targetRow - getPreRow());
-        int colDiff = Math.abs(targetCol - getPreCol());
-
-        return (rowDiff == 2 && colDiff == 1) || (rowDiff == 1 && colDiff == 2);
+        return containsSquare(Attacks.knightAttacks(getPreSquare()), targetCol, targetRow);
     }
 }
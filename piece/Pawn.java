@@ -1,5 +1,6 @@
 package piece;
 
+import engine.Attacks;
 import main.GamePanel;
 import main.Position;
 
@@ -8,7 +9,7 @@ public class Pawn extends Piece {
 
     public Pawn(int color, int col, int row) {
         super(color, col, row);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-pawn"));
         } else {
             setImage(getImage("/piece/b-pawn"));
@@ -21,7 +22,7 @@ public class Pawn extends Piece {
      */
     public Pawn(int color, Position position) {
         super(color, position);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-pawn"));
         }
         else {
@@ -30,7 +31,7 @@ public class Pawn extends Piece {
     }
 
     public boolean canBePromoted() {
-        return (getColor() == GamePanel.WHITE && getRow() == 0) || (getColor() == GamePanel.BLACK && getRow() == 7);
+        return (getColor() == GamePanel.getWhite() && getRow() == 0) || (getColor() == GamePanel.getBlack() && getRow() == 7);
     }
 
     @Override
@@ -41,21 +42,13 @@ public class Pawn extends Piece {
         }
 
         // Check for piece at target position
-        boolean isTargetOccupied = false;
-        boolean isTargetEnemy = false;
-
-        for (Piece piece : GamePanel.simPieces) {
-            if (piece != this && piece.getCol() == targetCol && piece.getRow() == targetRow) {
-                isTargetOccupied = true;
-                isTargetEnemy = (piece.getColor() != this.getColor());
-                break;
-            }
-        }
+        boolean isTargetOccupied = checkSpot(targetCol, targetRow);
+        boolean isTargetEnemy = isTargetOccupied && !isFriendlyAt(targetCol, targetRow);
 
         // White pawns move up (decreasing row), black pawns move down (increasing row)
-        if (getColor() == GamePanel.WHITE) {
+        if (getColor() == GamePanel.getWhite()) {
             // Diagonal capture for white
-            if (Math.abs(targetCol - getPreCol()) == 1 && targetRow == getPreRow() - 1) {
+            if (containsSquare(Attacks.pawnAttacks(getColor(), getPreSquare()), targetCol, targetRow)) {
                 return isTargetOccupied && isTargetEnemy;
             }
 
@@ -74,17 +67,12 @@ public class Pawn extends Piece {
                 // Two squares forward from starting position
                 if (!hasMoved && targetRow == getPreRow() - 2) {
                     // Check if path is clear
-                    for (Piece piece : GamePanel.simPieces) {
-                        if (piece != this && piece.getCol() == targetCol && piece.getRow() == getPreRow() - 1) {
-                            return false;
-                        }
-                    }
-                    return true;
+                    return !checkSpot(targetCol, getPreRow() - 1);
                 }
             }
         } else {  // Black pawn movement
             // Diagonal capture for black
-            if (Math.abs(targetCol - getPreCol()) == 1 && targetRow == getPreRow() + 1) {
+            if (containsSquare(Attacks.pawnAttacks(getColor(), getPreSquare()), targetCol, targetRow)) {
                 return isTargetOccupied && isTargetEnemy;
             }
 
@@ -103,12 +91,7 @@ public class Pawn extends Piece {
                 // Two squares forward from starting position
                 if (!hasMoved && targetRow == getPreRow() + 2) {
                     // Check if path is clear
-                    for (Piece piece : GamePanel.simPieces) {
-                        if (piece != this && piece.getCol() == targetCol && piece.getRow() == getPreRow() + 1) {
-                            return false;
-                        }
-                    }
-                    return true;
+                    return !checkSpot(targetCol, getPreRow() + 1);
                 }
             }
         }
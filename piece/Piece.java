@@ -2,6 +2,8 @@ package piece;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import engine.Attacks;
+import engine.BitboardPosition;
 import main.GamePanel;
 import main.Board;
 import main.Position;
@@ -111,42 +113,31 @@ public abstract class Piece {
         return canMove(targetPosition.getCol(), targetPosition.getRow());
     }
 
+    /**
+     * Square index of the committed position (preCol, preRow) as used by the bitboards.
+     */
+    public int getPreSquare() {
+        return BitboardPosition.square(preCol, preRow);
+    }
+
+    /**
+     * Checks whether the square (col, row) is in the given bitboard.
+     */
+    protected static boolean containsSquare(long squares, int col, int row) {
+        return (squares & BitboardPosition.bit(BitboardPosition.square(col, row))) != 0;
+    }
+
     public boolean isWithinBoard(int targetCol, int targetRow) {
         return targetCol >= 0 && targetCol <= 7 && targetRow >= 0 && targetRow <= 7;
     }
 
-    // The problem with the current checkPath implementation is that it checks for ANY piece blocking the path,
-// whereas it should only check squares between the start and target positions.
-
-    // Replace the existing checkPath method with this improved version:
+    /**
+     * Checks whether any piece stands strictly between the starting position and the target.
+     * Uses the precomputed between-squares table, so it is one AND with the occupancy.
+     */
     public boolean checkPath(int targetCol, int targetRow) {
-        // Starting position
-        int startCol = this.preCol;
-        int startRow = this.preRow;
-
-        // Calculate direction of movement
-        int colDirection = Integer.compare(targetCol, startCol);  // Will be -1, 0, or 1
-        int rowDirection = Integer.compare(targetRow, startRow);  // Will be -1, 0, or 1
-
-        // Start checking from the square after the starting position
-        int currentCol = startCol + colDirection;
-        int currentRow = startRow + rowDirection;
-
-        // Check each square until we reach the target (exclusive)
-        while (currentCol != targetCol || currentRow != targetRow) {
-            // Debug message to trace path checking
-
-
-            if (checkSpot(currentCol, currentRow)) {
-                System.out.println("Path is blocked at " + currentCol + "," + currentRow);
-                return true;  // Found a piece blocking the path
-            }
-
-            currentCol += colDirection;
-            currentRow += rowDirection;
-        }
-
-        return false;  // Path is clear
+        long path = Attacks.between(getPreSquare(), BitboardPosition.square(targetCol, targetRow));
+        return (path & GamePanel.getPosition().occupied()) != 0;
     }
 
     /**
@@ -165,13 +156,25 @@ public abstract class Piece {
         this(color, position.getCol(), position.getRow());
     }
 
+    /**
+     * Checks whether another piece stands on the target square.
+     * Answered from the occupancy bitboard instead of scanning the piece list.
+     */
     public boolean checkSpot(int targetCol, int targetRow) {
-        for (Piece piece : GamePanel.simPieces) {
-            if (piece != this && piece.getCol() == targetCol && piece.getRow() == targetRow) {
-                return true;  // Found a piece at target location
-            }
+        if (targetCol == col && targetRow == row) {
+            return false;  // This piece's own square
         }
-        return false;
+        return GamePanel.getPosition().isOccupied(targetCol, targetRow);
+    }
+
+    /**
+     * Checks whether another piece of this piece's color stands on the target square.
+     */
+    public boolean isFriendlyAt(int targetCol, int targetRow) {
+        if (targetCol == col && targetRow == row) {
+            return false;  // This piece's own square
+        }
+        return GamePanel.getPosition().isColorAt(color, targetCol, targetRow);
     }
 
     public void draw(Graphics2D g2){
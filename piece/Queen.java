@@ -1,12 +1,13 @@
 package piece;
 
+import engine.Attacks;
 import main.GamePanel;
 import main.Position;
 
 public class Queen extends Piece {
     public Queen(int color, int col, int row) {
         super(color, col, row);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-queen")) ;
         } else {
             setImage(getImage("/piece/b-queen"));
@@ -18,7 +19,7 @@ public class Queen extends Piece {
      */
     public Queen(int color, Position position) {
         super(color, position);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-queen"));
         }
         else {
@@ -33,22 +34,13 @@ public class Queen extends Piece {
             return false;
         }
 
-        // Check if the move is valid for a queen (horizontal, vertical, or diagonal)
-        boolean isValidQueenMove = (getPreRow() == targetRow || getPreCol() == targetCol) ||
-                (Math.abs(targetRow - getPreRow()) == Math.abs(targetCol - getPreCol()));
-
-        if (!isValidQueenMove) {
-            return false;
-        }
-
         // Check for piece of same color at target
-        for (Piece p : GamePanel.simPieces) {
-            if (p != this && p.getCol() == targetCol && p.getRow() == targetRow && p.getColor() == this.getColor()) {
-                return false;
-            }
+        if (isFriendlyAt(targetCol, targetRow)) {
+            return false;
         }
 
-        // Check if path is clear
-        return !checkPath(targetCol, targetRow);
+        // Look up the attacked squares for the current occupancy; blocked paths are already excluded
+        long attacks = Attacks.queenAttacks(getPreSquare(), GamePanel.getPosition().occupied());
+        return containsSquare(attacks, targetCol, targetRow);
     }
 }
@@ -1,5 +1,6 @@
 package piece;
 
+import engine.Attacks;
 import main.GamePanel;
 import main.Position;
 
@@ -8,7 +9,7 @@ public class Rook extends Piece {
 
     public Rook(int color, int col, int row) {
         super(color, col, row);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-rook")) ;
         }
         else {
@@ -22,7 +23,7 @@ public class Rook extends Piece {
      */
     public Rook(int color, Position position) {
         super(color, position);
-        if (color == GamePanel.WHITE) {
+        if (color == GamePanel.getWhite()) {
             setImage(getImage("/piece/w-rook"));
         }
         else {
@@ -37,21 +38,14 @@ public class Rook extends Piece {
             return false;
         }
 
-        // Check if the move is horizontal or vertical
-        boolean isValidMove = (targetCol == getPreCol() || targetRow == getPreRow());
-        if (!isValidMove) {
-            return false;
-        }
-
         // Check for piece of same color at target
-        for (Piece p : GamePanel.simPieces) {
-            if (p != this && p.getCol() == targetCol && p.getRow() == targetRow && p.getColor() == this.getColor()) {
-                return false;
-            }
+        if (isFriendlyAt(targetCol, targetRow)) {
+            return false;
         }
 
-        // Check if path is clear
-        return !checkPath(targetCol, targetRow);
+        // Look up the attacked squares for the current occupancy; blocked paths are already excluded
+        long attacks = Attacks.rookAttacks(getPreSquare(), GamePanel.getPosition().occupied());
+        return containsSquare(attacks, targetCol, targetRow);
     }
 
     @Override